@@ -0,0 +1,257 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable graph stored in compressed sparse row form: vertices are
+ * numbered, and the edges of each vertex are a sorted slice of parallel int
+ * arrays, once by source and once by target. Observers return unmodifiable
+ * views of those slices without copying them.
+ * 
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+final class CompactGraph<L> implements Graph<L> {
+    
+    private final L[] labels;
+    private final Map<L, Integer> ids;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] outWeights;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inWeights;
+    
+    // Abstraction function:
+    //   AF(labels, ..., outWeights) = a graph whose vertices are the elements
+    //     of labels, with an edge from labels[v] to labels[outTargets[i]] of
+    //     weight outWeights[i] for each outOffsets[v] <= i < outOffsets[v+1];
+    //     the in* arrays index the same edges by target
+    // Representation invariant:
+    //   ids maps each labels[v] to v, and nothing else
+    //   outOffsets and inOffsets have length labels.length + 1, start at 0,
+    //     are nondecreasing, and end at the number of edges
+    //   within each vertex's slice, outTargets and inSources strictly increase
+    //   all weights are positive
+    // Safety from rep exposure:
+    //   all fields are private and final, arrays are never returned, and
+    //   observers return unmodifiable views
+    
+    private CompactGraph(L[] labels, Map<L, Integer> ids, int[] outOffsets, int[] outTargets, int[] outWeights) {
+        this.labels = labels;
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outWeights = outWeights;
+        
+        // counting sort of the edges by target gives the incoming slices
+        int n = labels.length;
+        this.inOffsets = new int[n + 1];
+        this.inSources = new int[outTargets.length];
+        this.inWeights = new int[outTargets.length];
+        for (int target : outTargets) {
+            inOffsets[target + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int source = 0; source < n; source++) {
+            for (int i = outOffsets[source]; i < outOffsets[source + 1]; i++) {
+                int slot = next[outTargets[i]]++;
+                inSources[slot] = source;
+                inWeights[slot] = outWeights[i];
+            }
+        }
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert ids.size() == labels.length : "labels must be distinct";
+        assert outOffsets[labels.length] == outTargets.length;
+        assert inOffsets[labels.length] == inSources.length;
+    }
+    
+    /**
+     * Copy the current vertices and edges of a graph.
+     * 
+     * @param graph graph to copy
+     * @param <L> type of vertex labels
+     * @return an immutable compact graph equal to graph
+     */
+    static <L> CompactGraph<L> copyOf(Graph<L> graph) {
+        Set<L> vertices = graph.vertices();
+        @SuppressWarnings("unchecked")
+        L[] labels = (L[]) vertices.toArray();
+        Map<L, Integer> ids = new HashMap<>((int) (labels.length / 0.75f) + 1);
+        for (int v = 0; v < labels.length; v++) {
+            ids.put(labels[v], v);
+        }
+        int[] offsets = new int[labels.length + 1];
+        int[] targets = new int[16];
+        int[] weights = new int[16];
+        int edges = 0;
+        for (int v = 0; v < labels.length; v++) {
+            Map<L, Integer> out = graph.targets(labels[v]);
+            long[] packed = new long[out.size()];
+            int degree = 0;
+            for (Map.Entry<L, Integer> edge : out.entrySet()) {
+                Integer target = ids.get(edge.getKey());
+                if (target != null) {
+                    packed[degree++] = ((long) target << 32) | (edge.getValue() & 0xFFFFFFFFL);
+                }
+            }
+            Arrays.sort(packed, 0, degree);
+            if (edges + degree > targets.length) {
+                int capacity = Math.max(edges + degree, targets.length * 2);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            for (int i = 0; i < degree; i++) {
+                targets[edges] = (int) (packed[i] >>> 32);
+                weights[edges] = (int) packed[i];
+                edges++;
+            }
+            offsets[v + 1] = edges;
+        }
+        return new CompactGraph<>(labels, ids, offsets, Arrays.copyOf(targets, edges), Arrays.copyOf(weights, edges));
+    }
+    
+    /**
+     * Unsupported: compact graphs are immutable.
+     * 
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean add(L vertex) {
+        throw new UnsupportedOperationException("compact graphs are immutable");
+    }
+    
+    /**
+     * Unsupported: compact graphs are immutable.
+     * 
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("compact graphs are immutable");
+    }
+    
+    /**
+     * Unsupported: compact graphs are immutable.
+     * 
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("compact graphs are immutable");
+    }
+    
+    @Override
+    public Set<L> vertices() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+    
+    @Override
+    public Map<L, Integer> sources(L target) {
+        Integer v = ids.get(target);
+        return v == null ? Collections.<L, Integer>emptyMap() : new Slice(inOffsets[v], inOffsets[v + 1], inSources, inWeights);
+    }
+    
+    @Override
+    public Map<L, Integer> targets(L source) {
+        Integer v = ids.get(source);
+        return v == null ? Collections.<L, Integer>emptyMap() : new Slice(outOffsets[v], outOffsets[v + 1], outTargets, outWeights);
+    }
+    
+    /**
+     * @return number of edges in this graph
+     */
+    int edgeCount() {
+        return outTargets.length;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CompactGraph(");
+        for (L vertex : labels) {
+            sb.append(vertex).append(" -> ").append(targets(vertex)).append("; ");
+        }
+        return sb.append(")").toString();
+    }
+    
+    /**
+     * Unmodifiable map view of one vertex's slice of the edge arrays.
+     */
+    private final class Slice extends AbstractMap<L, Integer> {
+        private final int from;
+        private final int to;
+        private final int[] neighbors;
+        private final int[] weights;
+        
+        Slice(int from, int to, int[] neighbors, int[] weights) {
+            this.from = from;
+            this.to = to;
+            this.neighbors = neighbors;
+            this.weights = weights;
+        }
+        
+        @Override
+        public Integer get(Object key) {
+            Integer id = ids.get(key);
+            if (id == null) {
+                return null;
+            }
+            int i = Arrays.binarySearch(neighbors, from, to, id);
+            return i >= 0 ? weights[i] : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+        
+        @Override
+        public int size() {
+            return to - from;
+        }
+        
+        @Override
+        public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override
+                public int size() {
+                    return to - from;
+                }
+                
+                @Override
+                public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int i = from;
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return i < to;
+                        }
+                        
+                        @Override
+                        public Map.Entry<L, Integer> next() {
+                            if (i >= to) throw new NoSuchElementException();
+                            Map.Entry<L, Integer> entry =
+                                    new AbstractMap.SimpleImmutableEntry<>(labels[neighbors[i]], weights[i]);
+                            i++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -3,34 +3,62 @@ package graph;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.HashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An implementation of Graph.
  */
 public class ConcreteEdgesGraph implements Graph<String> {
     
-    private final Set<String> vertices = new HashSet<>();
-    private final List<Edge> edges = new ArrayList<>();
+    private final Set<String> vertices;
+    private final List<Edge> edges;
+    private final WeightRanking outgoing;
+    private final WeightRanking incoming;
+    private final ListenerList listeners = new ListenerList();
     
     // Abstraction function:
     //   Represents a directed graph where each edge has a source, target, and weight.
+    //   outgoing and incoming index the same edges by source and by target,
+    //   heaviest first.
     
     // Representation invariant:
     //   - Each edge's source and target are in the vertices set.
     //   - No two edges have the same source and target.
+    //   - outgoing and incoming hold exactly the edges in edges.
     
     // Safety from rep exposure:
     //   vertices and edges are private final fields; we return copies of mutable collections.
     
     public ConcreteEdgesGraph() {
+        this(0, 0);
+    }
+    
+    /**
+     * Make an empty graph with tables pre-sized for the expected contents.
+     * 
+     * @param expectedVertices number of vertices expected, nonnegative
+     * @param expectedEdges number of edges expected, nonnegative
+     */
+    public ConcreteEdgesGraph(int expectedVertices, int expectedEdges) {
+        if (expectedVertices < 0 || expectedEdges < 0) {
+            throw new IllegalArgumentException("expected sizes must be nonnegative");
+        }
+        vertices = new HashSet<>(GraphBuilder.hashCapacity(expectedVertices));
+        edges = new ArrayList<>(expectedEdges);
+        outgoing = new WeightRanking(expectedVertices);
+        incoming = new WeightRanking(expectedVertices);
         checkRep();
     }
     
     private void checkRep() {
+        boolean enabled = false;
+        assert enabled = true;
+        if (!enabled) return; // the loop below is O(size) even with assertions off
         for (Edge edge : edges) {
             assert vertices.contains(edge.getSource()) && vertices.contains(edge.getTarget()) 
                    : "Edge vertices must exist in the vertices set";
@@ -42,6 +70,9 @@ public class ConcreteEdgesGraph implements Graph<String> {
         if (vertex == null) throw new IllegalArgumentException("Vertex cannot be null");
         boolean added = vertices.add(vertex);
         checkRep();
+        if (added) {
+            listeners.vertexAdded(vertex);
+        }
         return added;
     }
     
@@ -58,12 +89,23 @@ public class ConcreteEdgesGraph implements Graph<String> {
             }
         }
 
+        boolean addedSource = false;
+        boolean addedTarget = false;
         if (weight > 0) {
             edges.add(new Edge(source, target, weight));
-            vertices.add(source);
-            vertices.add(target);
+            addedSource = vertices.add(source);
+            addedTarget = vertices.add(target);
         }
+        outgoing.update(source, target, prevWeight, weight);
+        incoming.update(target, source, prevWeight, weight);
         checkRep();
+        if (addedSource) {
+            listeners.vertexAdded(source);
+        }
+        if (addedTarget) {
+            listeners.vertexAdded(target);
+        }
+        listeners.edgeSet(source, target, prevWeight, weight);
         return prevWeight;
     }
     
@@ -71,7 +113,16 @@ public class ConcreteEdgesGraph implements Graph<String> {
     public boolean remove(String vertex) {
         boolean removed = vertices.remove(vertex);
         edges.removeIf(edge -> edge.getSource().equals(vertex) || edge.getTarget().equals(vertex));
+        for (WeightRanking.Neighbor target : outgoing.removeAll(vertex)) {
+            incoming.update(target.label, vertex, target.weight, 0);
+        }
+        for (WeightRanking.Neighbor source : incoming.removeAll(vertex)) {
+            outgoing.update(source.label, vertex, source.weight, 0);
+        }
         checkRep();
+        if (removed) {
+            listeners.vertexRemoved(vertex);
+        }
         return removed;
     }
     
@@ -82,24 +133,105 @@ public class ConcreteEdgesGraph implements Graph<String> {
     
     @Override
     public Map<String, Integer> sources(String target) {
-        Map<String, Integer> sources = new HashMap<>();
-        for (Edge edge : edges) {
-            if (edge.getTarget().equals(target)) {
-                sources.put(edge.getSource(), edge.getWeight());
-            }
-        }
-        return sources;
+        return incoming.weights(target);
     }
     
     @Override
     public Map<String, Integer> targets(String source) {
-        Map<String, Integer> targets = new HashMap<>();
+        return outgoing.weights(source);
+    }
+    
+    /**
+     * Get the heaviest target vertices of a source vertex.
+     * 
+     * @param source a label
+     * @param k maximum number of targets to return, nonnegative
+     * @return a map like targets(source) restricted to its k heaviest edges,
+     *         iterating in order of descending weight and then ascending label
+     */
+    public Map<String, Integer> topTargets(String source, int k) {
+        return outgoing.top(source, k);
+    }
+    
+    /**
+     * Get the heaviest source vertices of a target vertex.
+     * 
+     * @param target a label
+     * @param k maximum number of sources to return, nonnegative
+     * @return a map like sources(target) restricted to its k heaviest edges,
+     *         iterating in order of descending weight and then ascending label
+     */
+    public Map<String, Integer> topSources(String target, int k) {
+        return incoming.top(target, k);
+    }
+    
+    /**
+     * Get every edge of this graph as a stream. The stream's spliterator
+     * splits by ranges of source vertices balanced by out-degree, so
+     * parallel() pipelines stay balanced on skewed graphs.
+     * This graph must not be modified while the stream is in use.
+     * 
+     * @return a stream with one element per edge of this graph
+     */
+    public Stream<WeightedEdge<String>> edges() {
+        String[] sources = vertices.toArray(new String[0]);
+        long[] prefix = new long[sources.length + 1];
+        for (int i = 0; i < sources.length; i++) {
+            prefix[i + 1] = prefix[i] + outgoing.degree(sources[i]);
+        }
+        return StreamSupport.stream(new EdgeSpliterator<>(prefix, i -> {
+            String source = sources[i];
+            Iterator<WeightRanking.Neighbor> targets = outgoing.neighbors(source);
+            return new Iterator<WeightedEdge<String>>() {
+                @Override public boolean hasNext() { return targets.hasNext(); }
+                @Override public WeightedEdge<String> next() {
+                    WeightRanking.Neighbor target = targets.next();
+                    return new WeightedEdge<>(source, target.label, target.weight);
+                }
+            };
+        }), false);
+    }
+    
+    /**
+     * Register a listener to be told about every later change to this graph.
+     * 
+     * @param listener listener to add
+     */
+    public void addListener(GraphListener<String> listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Unregister a listener.
+     * 
+     * @param listener listener to remove
+     * @return true if the listener was registered
+     */
+    public boolean removeListener(GraphListener<String> listener) {
+        return listeners.remove(listener);
+    }
+    
+    /**
+     * Summarize this graph in one pass over its representation.
+     * 
+     * @return statistics of this graph, with an estimate of the heap retained
+     *         by its edge list, vertex set, weight rankings and labels
+     */
+    public GraphStats stats() {
+        GraphStats.Builder stats = new GraphStats.Builder();
+        long labelBytes = 0;
+        for (String vertex : vertices) {
+            stats.vertex(outgoing.degree(vertex), incoming.degree(vertex));
+            labelBytes += HeapSize.string(vertex);
+        }
         for (Edge edge : edges) {
-            if (edge.getSource().equals(source)) {
-                targets.put(edge.getTarget(), edge.getWeight());
-            }
+            stats.edge(edge.getWeight());
         }
-        return targets;
+        long heapBytes = HeapSize.align(HeapSize.HEADER + 5 * HeapSize.REFERENCE)
+                + HeapSize.hashSet(vertices.size()) + labelBytes
+                + HeapSize.arrayList(edges.size()) + edges.size() * Edge.HEAP_BYTES
+                + outgoing.estimatedHeapBytes() + incoming.estimatedHeapBytes();
+        return stats.build("ConcreteEdgesGraph", heapBytes);
     }
     
     @Override
@@ -112,6 +244,8 @@ public class ConcreteEdgesGraph implements Graph<String> {
  * Immutable class representing a directed, weighted edge in a graph.
  */
 class Edge {
+    static final long HEAP_BYTES = HeapSize.align(HeapSize.HEADER + 2 * HeapSize.REFERENCE + 4);
+
     private final String source;
     private final String target;
     private final int weight;
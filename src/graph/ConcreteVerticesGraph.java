@@ -1,42 +1,72 @@
 package graph;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.ConcurrentModificationException;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ConcreteVerticesGraph implements Graph<String> {
     
-    private final List<Vertex> vertices = new ArrayList<>();
+    private final Map<String, Vertex> vertices;
+    private final ListenerList listeners = new ListenerList();
     
     // Constructor
     public ConcreteVerticesGraph() {
+        this(0);
+    }
+    
+    /**
+     * Make an empty graph with its vertex map pre-sized for the expected
+     * number of vertices. Each vertex's edge tables start empty and grow with
+     * its own degree, since in skewed graphs most
+     * vertices have far fewer targets than the mean.
+     * 
+     * @param expectedVertices number of vertices expected, nonnegative
+     */
+    public ConcreteVerticesGraph(int expectedVertices) {
+        if (expectedVertices < 0) {
+            throw new IllegalArgumentException("expectedVertices must be nonnegative");
+        }
+        this.vertices = new LinkedHashMap<>(GraphBuilder.hashCapacity(expectedVertices));
         checkRep();
     }
     
     // Abstraction function and Representation invariant for ConcreteVerticesGraph:
     // AF(vertices) = a directed graph where each Vertex in vertices represents a node
     //    in the graph, and each edge in Vertex's edges represents an edge in the graph.
+    //    vertices iterates in the order the vertices were added.
+    //    each Vertex's sources hold the edges into it, keyed by source.
     // RI: vertices is not null, does not contain null elements,
-    //    and no two vertices have the same label.
+    //    and maps each Vertex's label to that Vertex.
+    //    every target of an edge is a vertex.
+    //    each Vertex's sources hold exactly the edges into it: target t has
+    //    source s with weight w iff s has an edge to t with weight w.
 
     private void checkRep() {
-        assert vertices != null : "vertices list should not be null";
-        Set<String> labels = new HashSet<>();
-        for (Vertex v : vertices) {
-            assert v != null : "vertex should not be null";
-            assert labels.add(v.getLabel()) : "duplicate vertex label";
+        boolean enabled = false;
+        assert enabled = true;
+        if (!enabled) return; // the loop below is O(size) even with assertions off
+        assert vertices != null : "vertices map should not be null";
+        long edges = 0;
+        for (Map.Entry<String, Vertex> v : vertices.entrySet()) {
+            assert v.getValue() != null : "vertex should not be null";
+            assert v.getKey().equals(v.getValue().getLabel()) : "vertex filed under another label";
+            edges += v.getValue().outDegree() - v.getValue().sourceTable().size();
         }
+        assert edges == 0 : "sources out of step with edges";
     }
 
     @Override
     public boolean add(String vertex) {
         if (findVertex(vertex) == null) {
-            vertices.add(new Vertex(vertex));
+            vertices.put(vertex, new Vertex(vertex));
             checkRep();
+            listeners.vertexAdded(vertex);
             return true;
         }
         return false;
@@ -44,22 +74,64 @@ public class ConcreteVerticesGraph implements Graph<String> {
     
     @Override
     public int set(String source, String target, int weight) {
-        Vertex sourceVertex = findOrAddVertex(source);
-        Integer previousWeight = sourceVertex.getEdges().get(target);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Edge weight cannot be negative");
+        }
+        Vertex sourceVertex = findVertex(source);
+        if (sourceVertex == null && weight == 0) {
+            return 0;
+        }
+        boolean addedSource = false;
+        boolean addedTarget = false;
+        if (weight > 0) {
+            addedSource = sourceVertex == null;
+            if (addedSource) {
+                sourceVertex = new Vertex(source);
+                vertices.put(source, sourceVertex);
+            }
+            addedTarget = findVertex(target) == null;
+            if (addedTarget) {
+                vertices.put(target, new Vertex(target));
+            }
+        }
+        int prevWeight = sourceVertex.getWeight(target);
         sourceVertex.addEdge(target, weight);
+        Vertex targetVertex = findVertex(target);
+        if (targetVertex != null) {
+            targetVertex.setSource(source, weight);
+        }
         checkRep();
-        return previousWeight == null ? 0 : previousWeight;
+        if (addedSource) {
+            listeners.vertexAdded(source);
+        }
+        if (addedTarget) {
+            listeners.vertexAdded(target);
+        }
+        listeners.edgeSet(source, target, prevWeight, weight);
+        return prevWeight;
     }
     
     @Override
     public boolean remove(String vertex) {
-        Vertex v = findVertex(vertex);
+        Vertex v = vertices.remove(vertex);
         if (v != null) {
-            vertices.remove(v);
-            for (Vertex vert : vertices) {
-                vert.removeEdge(vertex);
+            // v is already out of the map, so a self-loop finds nothing to update
+            LabelWeightTable sources = v.sourceTable();
+            for (int slot = 0; slot < sources.capacity(); slot++) {
+                Vertex source = findVertex(sources.keyAt(slot));
+                if (source != null) {
+                    source.removeEdge(vertex);
+                }
+            }
+            LabelWeightTable targets = v.edgeTable();
+            for (int slot = 0; slot < targets.capacity(); slot++) {
+                Vertex target = findVertex(targets.keyAt(slot));
+                if (target != null) {
+                    target.setSource(vertex, 0);
+                }
             }
             checkRep();
+            listeners.vertexRemoved(vertex);
             return true;
         }
         return false;
@@ -67,22 +139,13 @@ public class ConcreteVerticesGraph implements Graph<String> {
     
     @Override
     public Set<String> vertices() {
-        Set<String> vertexLabels = new HashSet<>();
-        for (Vertex v : vertices) {
-            vertexLabels.add(v.getLabel());
-        }
-        return Collections.unmodifiableSet(vertexLabels);
+        return Collections.unmodifiableSet(new HashSet<>(vertices.keySet()));
     }
     
     @Override
     public Map<String, Integer> sources(String target) {
-        Map<String, Integer> sources = new HashMap<>();
-        for (Vertex v : vertices) {
-            if (v.getEdges().containsKey(target)) {
-                sources.put(v.getLabel(), v.getEdges().get(target));
-            }
-        }
-        return sources;
+        Vertex v = findVertex(target);
+        return v == null ? Collections.emptyMap() : v.getSources();
     }
     
     @Override
@@ -91,82 +154,162 @@ public class ConcreteVerticesGraph implements Graph<String> {
         return v == null ? Collections.emptyMap() : v.getEdges();
     }
     
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        for (Vertex v : vertices) {
-            sb.append(v.toString()).append("\n");
-        }
-        return sb.toString();
+    /**
+     * Get the heaviest target vertices of a source vertex. Nothing is kept
+     * sorted between calls: each call selects from the vertex's edge table
+     * with a bounded heap, in O(out-degree log k) time.
+     * 
+     * @param source a label
+     * @param k maximum number of targets to return, nonnegative
+     * @return a map like targets(source) restricted to its k heaviest edges,
+     *         iterating in order of descending weight and then ascending label
+     */
+    public Map<String, Integer> topTargets(String source, int k) {
+        Vertex v = findVertex(source);
+        return top(v == null ? null : v.edgeTable(), k);
     }
     
-    private Vertex findVertex(String label) {
-        for (Vertex v : vertices) {
-            if (v.getLabel().equals(label)) {
-                return v;
-            }
-        }
-        return null;
+    /**
+     * Get the heaviest source vertices of a target vertex, selected like
+     * topTargets() from the vertex's table of incoming edges.
+     * 
+     * @param target a label
+     * @param k maximum number of sources to return, nonnegative
+     * @return a map like sources(target) restricted to its k heaviest edges,
+     *         iterating in order of descending weight and then ascending label
+     */
+    public Map<String, Integer> topSources(String target, int k) {
+        Vertex v = findVertex(target);
+        return top(v == null ? null : v.sourceTable(), k);
     }
     
-    private Vertex findOrAddVertex(String label) {
-        Vertex v = findVertex(label);
-        if (v == null) {
-            v = new Vertex(label);
-            vertices.add(v);
+    private static Map<String, Integer> top(LabelWeightTable table, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be nonnegative");
         }
-        return v;
+        return table == null ? new LinkedHashMap<>() : table.top(k);
     }
-}
-
-class Vertex {
-    private final String label;
-    private final Map<String, Integer> edges = new HashMap<>();
     
-    // Constructor
-    public Vertex(String label) {
-        this.label = label;
+    /**
+     * Get every edge of this graph as a stream. The stream's spliterator
+     * splits by ranges of source vertices balanced by out-degree, so
+     * parallel() pipelines stay balanced on skewed graphs.
+     * This graph must not be modified while the stream is in use.
+     * 
+     * @return a stream with one element per edge of this graph
+     */
+    public Stream<WeightedEdge<String>> edges() {
+        Vertex[] sources = vertices.values().toArray(new Vertex[0]);
+        long[] prefix = new long[sources.length + 1];
+        for (int i = 0; i < sources.length; i++) {
+            prefix[i + 1] = prefix[i] + sources[i].outDegree();
+        }
+        return StreamSupport.stream(new EdgeSpliterator<>(prefix, i -> {
+            Vertex source = sources[i];
+            LabelWeightTable targets = source.edgeTable();
+            return new Iterator<WeightedEdge<String>>() {
+                private final int expectedModCount = targets.modCount();
+                private int slot = advance(0);
+                
+                private int advance(int from) {
+                    while (from < targets.capacity() && targets.keyAt(from) == null) {
+                        from++;
+                    }
+                    return from;
+                }
+                
+                @Override public boolean hasNext() { return slot < targets.capacity(); }
+                @Override public WeightedEdge<String> next() {
+                    if (targets.modCount() != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    WeightedEdge<String> edge = new WeightedEdge<>(source.getLabel(), targets.keyAt(slot), targets.weightAt(slot));
+                    slot = advance(slot + 1);
+                    return edge;
+                }
+            };
+        }), false);
     }
     
-    // Abstraction function and Representation invariant for Vertex:
-    // AF(label, edges) = a node labeled 'label' with directed edges and weights in 'edges'.
-    // RI: label != null, edges != null, no edge weight is negative.
-
-    private void checkRep() {
-        assert label != null : "label should not be null";
-        assert edges != null : "edges map should not be null";
-        for (int weight : edges.values()) {
-            assert weight >= 0 : "edge weights must be non-negative";
-        }
+    /**
+     * Register a listener to be told about every later change to this graph.
+     * 
+     * @param listener listener to add
+     */
+    public void addListener(GraphListener<String> listener) {
+        listeners.add(listener);
     }
     
-    public String getLabel() {
-        return label;
+    /**
+     * Unregister a listener.
+     * 
+     * @param listener listener to remove
+     * @return true if the listener was registered
+     */
+    public boolean removeListener(GraphListener<String> listener) {
+        return listeners.remove(listener);
     }
     
-    public boolean addEdge(String target, int weight) {
-        if (weight < 0) {
-            throw new IllegalArgumentException("Edge weight cannot be negative");
-        }
-        if (weight == 0) {
-            return edges.remove(target) != null;
-        } else {
-            edges.put(target, weight);
-            checkRep();
-            return true;
+    /**
+     * Summarize this graph in one pass over its representation.
+     * 
+     * @return statistics of this graph, with an estimate of the heap retained
+     *         by its vertex map, adjacency tables and labels
+     */
+    public GraphStats stats() {
+        GraphStats.Builder stats = new GraphStats.Builder();
+        long vertexBytes = 0;
+        for (Vertex v : vertices.values()) {
+            LabelWeightTable edges = v.edgeTable();
+            stats.vertex(edges.size(), v.sourceTable().size());
+            vertexBytes += Vertex.HEAP_BYTES + HeapSize.string(v.getLabel())
+                    + edges.estimatedHeapBytes() + v.sourceTable().estimatedHeapBytes();
+            for (int slot = 0; slot < edges.capacity(); slot++) {
+                if (edges.keyAt(slot) != null) {
+                    stats.edge(edges.weightAt(slot));
+                }
+            }
         }
+        long heapBytes = HeapSize.align(HeapSize.HEADER + 2 * HeapSize.REFERENCE)
+                + HeapSize.hashMap(vertices.size()) + vertices.size() * HeapSize.LINKED_NODE_EXTRA + vertexBytes;
+        return stats.build("ConcreteVerticesGraph", heapBytes);
     }
     
-    public boolean removeEdge(String target) {
-        return edges.remove(target) != null;
+    /**
+     * @return estimated bytes of heap retained by the adjacency tables of all
+     *         vertices, excluding labels
+     */
+    long adjacencyHeapBytes() {
+        long bytes = 0;
+        for (Vertex v : vertices.values()) {
+            bytes += v.edgeTable().estimatedHeapBytes();
+        }
+        return bytes;
     }
     
-    public Map<String, Integer> getEdges() {
-        return Collections.unmodifiableMap(edges);
+    /**
+     * @return estimated bytes the same adjacency would retain stored as one
+     *         HashMap<String, Integer> per vertex, excluding labels
+     */
+    long boxedAdjacencyHeapBytes() {
+        long bytes = 0;
+        for (Vertex v : vertices.values()) {
+            bytes += LabelWeightTable.hashMapHeapBytes(v.outDegree(), v.getEdges().values());
+        }
+        return bytes;
     }
     
     @Override
     public String toString() {
-        return label + " edges: " + edges;
+        StringBuilder sb = new StringBuilder();
+        for (Vertex v : vertices.values()) {
+            sb.append(v.toString()).append("\n");
+        }
+        return sb.toString();
+    }
+    
+    private Vertex findVertex(String label) {
+        return vertices.get(label);
     }
-}
\ No newline at end of file
+    
+}
@@ -0,0 +1,19 @@
+package graph;
+
+/**
+ * A test of one weighted directed edge.
+ * 
+ * @param <L> type of vertex labels
+ */
+@FunctionalInterface
+public interface EdgePredicate<L> {
+    
+    /**
+     * @param source label of the edge's source vertex
+     * @param target label of the edge's target vertex
+     * @param weight positive weight of the edge
+     * @return true if the edge passes this test
+     */
+    public boolean test(L source, L target, int weight);
+    
+}
@@ -0,0 +1,119 @@
+package graph;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Spliterator over the edges of a graph, grouped by source vertex.
+ * Splits divide a range of source vertices in two halves of nearly equal
+ * edge count, found by binary search over prefix sums of the out-degrees, so
+ * parallel streams stay balanced even when a few hub vertices hold most of
+ * the edges. A range holding a single vertex is not split further.
+ * 
+ * <p>The graph must not be modified while the spliterator is in use.
+ * 
+ * @param <E> type of the edges
+ */
+final class EdgeSpliterator<E> implements Spliterator<E> {
+    
+    private final long[] prefix;
+    private final IntFunction<Iterator<E>> group;
+    private int lo;
+    private final int hi;
+    private Iterator<E> current = Collections.emptyIterator();
+    private long consumedInGroup = 0;
+    
+    // Abstraction function:
+    //   AF(prefix, group, lo, hi, current) = the remaining elements of
+    //     current, followed by the edges of groups lo..hi-1, where group i
+    //     holds prefix[i+1] - prefix[i] edges
+    // Representation invariant:
+    //   prefix is nondecreasing and starts at 0
+    //   0 <= lo <= hi < prefix.length
+    //   current has been advanced consumedInGroup times into group lo-1
+    // Safety from rep exposure:
+    //   prefix is shared only among spliterators split from one another,
+    //   and none of them mutate it
+    
+    /**
+     * Make a spliterator over all groups.
+     * 
+     * @param prefix prefix[i] is the number of edges in groups 0..i-1; its
+     *        length is one more than the number of groups
+     * @param group returns an iterator over the edges of group i
+     */
+    EdgeSpliterator(long[] prefix, IntFunction<Iterator<E>> group) {
+        this(prefix, group, 0, prefix.length - 1);
+    }
+    
+    private EdgeSpliterator(long[] prefix, IntFunction<Iterator<E>> group, int lo, int hi) {
+        this.prefix = prefix;
+        this.group = group;
+        this.lo = lo;
+        this.hi = hi;
+    }
+    
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        while (!current.hasNext()) {
+            if (lo >= hi) {
+                return false;
+            }
+            current = group.apply(lo++);
+            consumedInGroup = 0;
+        }
+        action.accept(current.next());
+        consumedInGroup++;
+        return true;
+    }
+    
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+        current.forEachRemaining(action);
+        for (; lo < hi; lo++) {
+            group.apply(lo).forEachRemaining(action);
+        }
+        current = Collections.emptyIterator();
+    }
+    
+    @Override
+    public Spliterator<E> trySplit() {
+        if (current.hasNext() || hi - lo < 2) {
+            return null;
+        }
+        long half = (prefix[lo] + prefix[hi]) / 2;
+        // smallest mid in (lo, hi) with prefix[mid] >= half
+        int left = lo + 1;
+        int right = hi - 1;
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            if (prefix[mid] < half) {
+                left = mid + 1;
+            } else {
+                right = mid;
+            }
+        }
+        int mid = left;
+        // the split point just before mid may be closer to the halfway mark
+        if (mid - 1 > lo && half - prefix[mid - 1] < prefix[mid] - half) {
+            mid--;
+        }
+        EdgeSpliterator<E> prefixHalf = new EdgeSpliterator<>(prefix, group, lo, mid);
+        lo = mid;
+        return prefixHalf;
+    }
+    
+    @Override
+    public long estimateSize() {
+        long inCurrent = lo == 0 ? 0 : prefix[lo] - prefix[lo - 1] - consumedInGroup;
+        return prefix[hi] - prefix[lo] + (current.hasNext() ? inCurrent : 0);
+    }
+    
+    @Override
+    public int characteristics() {
+        return SIZED | SUBSIZED | DISTINCT | NONNULL;
+    }
+}
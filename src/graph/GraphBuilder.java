@@ -0,0 +1,181 @@
+package graph;
+
+/**
+ * Builder of empty mutable Graph&lt;String&gt; instances pre-sized from hints
+ * about their eventual contents.
+ *
+ * <p>Unless a representation is forced, the expected edge count picks one:
+ * <ul>
+ * <li>EDGE_LIST (ConcreteEdgesGraph) for at most SMALL_EDGES edges, where
+ *     scanning a short list costs less than hashing;
+ * <li>SORTED_RUNS (SortedRunGraph) for at least LARGE_EDGES edges, where its
+ *     int-array runs take a fraction of the heap of per-edge objects;
+ * <li>VERTEX_ADJACENCY (ConcreteVerticesGraph) in between, or when there
+ *     are no hints, for constant-time reads and writes.
+ * </ul>
+ * The expected edge count is the explicit hint if given, else vertices times
+ * average out-degree, else vertices squared times density.
+ */
+public final class GraphBuilder {
+
+    /**
+     * Backing representations a GraphBuilder can choose.
+     */
+    public enum Representation {
+        /** ConcreteEdgesGraph: a list of edge objects */
+        EDGE_LIST,
+        /** ConcreteVerticesGraph: an open-addressing table of targets per vertex */
+        VERTEX_ADJACENCY,
+        /** SortedRunGraph: a memtable over sorted int-array runs */
+        SORTED_RUNS
+    }
+
+    /** Largest expected edge count for which EDGE_LIST is chosen. */
+    public static final long SMALL_EDGES = 256;
+    /** Smallest expected edge count for which SORTED_RUNS is chosen. */
+    public static final long LARGE_EDGES = 1 << 20;
+
+    private int expectedVertices = -1;
+    private long expectedEdges = -1;
+    private double averageOutDegree = -1;
+    private double density = -1;
+    private Representation representation = null;
+
+    // Abstraction function:
+    //   AF(expectedVertices, expectedEdges, averageOutDegree, density,
+    //      representation) = a request for an empty graph, where each hint
+    //      that is negative was not given, and a null representation is
+    //      chosen from the hints
+    // Representation invariant:
+    //   each hint is -1 or nonnegative; density is -1 or in [0, 1]
+    // Safety from rep exposure:
+    //   all fields are private and immutable values
+
+    private void checkRep() {
+        assert expectedVertices >= -1 && expectedEdges >= -1;
+        assert density == -1 || (0 <= density && density <= 1);
+    }
+
+    /**
+     * @param vertices number of vertices the graph is expected to hold, nonnegative
+     * @return this builder
+     */
+    public GraphBuilder expectedVertices(int vertices) {
+        if (vertices < 0) throw new IllegalArgumentException("expected vertices must be nonnegative");
+        this.expectedVertices = vertices;
+        checkRep();
+        return this;
+    }
+
+    /**
+     * @param edges number of edges the graph is expected to hold, nonnegative
+     * @return this builder
+     */
+    public GraphBuilder expectedEdges(long edges) {
+        if (edges < 0) throw new IllegalArgumentException("expected edges must be nonnegative");
+        this.expectedEdges = edges;
+        checkRep();
+        return this;
+    }
+
+    /**
+     * @param degree expected number of targets per vertex, nonnegative
+     * @return this builder
+     */
+    public GraphBuilder averageOutDegree(double degree) {
+        if (!(degree >= 0)) throw new IllegalArgumentException("average out-degree must be nonnegative");
+        this.averageOutDegree = degree;
+        checkRep();
+        return this;
+    }
+
+    /**
+     * @param density expected fraction of all ordered vertex pairs joined by an edge, in [0, 1]
+     * @return this builder
+     */
+    public GraphBuilder density(double density) {
+        if (!(0 <= density && density <= 1)) throw new IllegalArgumentException("density must be in [0, 1]");
+        this.density = density;
+        checkRep();
+        return this;
+    }
+
+    /**
+     * Use a representation regardless of the hints.
+     *
+     * @param representation representation to use, or null to choose from the hints
+     * @return this builder
+     */
+    public GraphBuilder representation(Representation representation) {
+        this.representation = representation;
+        return this;
+    }
+
+    /**
+     * @return the representation build() will use
+     */
+    public Representation chosenRepresentation() {
+        if (representation != null) {
+            return representation;
+        }
+        long edges = edges();
+        if (edges < 0) {
+            return Representation.VERTEX_ADJACENCY;
+        } else if (edges <= SMALL_EDGES) {
+            return Representation.EDGE_LIST;
+        } else if (edges >= LARGE_EDGES) {
+            return Representation.SORTED_RUNS;
+        }
+        return Representation.VERTEX_ADJACENCY;
+    }
+
+    /**
+     * @return a new empty graph in the chosen representation, with its
+     *         tables sized for the hints
+     */
+    public Graph<String> build() {
+        int vertices = Math.max(0, vertices());
+        long edges = Math.max(0, edges());
+        switch (chosenRepresentation()) {
+        case EDGE_LIST:
+            return new ConcreteEdgesGraph(vertices, (int) Math.min(edges, Integer.MAX_VALUE - 8));
+        case SORTED_RUNS:
+            // a larger memtable means fewer, larger runs to merge
+            int memtable = (int) Math.max(SortedRunGraph.DEFAULT_MEMTABLE_CAPACITY, Math.min(edges / 256, 1 << 16));
+            return new SortedRunGraph(vertices, memtable, SortedRunGraph.DEFAULT_MAX_RUNS);
+        case VERTEX_ADJACENCY:
+        default:
+            // only the vertex map is sized: a mean-degree table
+            // per vertex would waste most of its slots on low-degree words
+            return new ConcreteVerticesGraph(vertices);
+        }
+    }
+
+    private int vertices() {
+        if (expectedVertices >= 0) {
+            return expectedVertices;
+        }
+        // a graph with m edges has at least sqrt(m) vertices
+        return expectedEdges >= 0 ? (int) Math.min(Math.ceil(Math.sqrt(expectedEdges)), Integer.MAX_VALUE) : -1;
+    }
+
+    private long edges() {
+        if (expectedEdges >= 0) {
+            return expectedEdges;
+        } else if (expectedVertices >= 0 && averageOutDegree >= 0) {
+            return (long) Math.ceil(expectedVertices * averageOutDegree);
+        } else if (expectedVertices >= 0 && density >= 0) {
+            return (long) Math.ceil((double) expectedVertices * expectedVertices * density);
+        }
+        return -1;
+    }
+
+    /**
+     * @param expected number of entries a hash table is expected to hold, nonnegative
+     * @return initial capacity that holds that many entries without rehashing
+     *         at the default load factor
+     */
+    static int hashCapacity(int expected) {
+        return (int) Math.min((long) expected * 4 / 3 + 1, 1 << 30);
+    }
+}
@@ -0,0 +1,37 @@
+package graph;
+
+/**
+ * Observer of changes to a mutable graph.
+ * A graph calls its listeners after each change has been made, in the order
+ * the changes happen, on the thread that made the change.
+ * 
+ * @param <L> type of vertex labels in the observed graph
+ */
+public interface GraphListener<L> {
+    
+    /**
+     * Called when a vertex is added, either by add() or implicitly by set().
+     * 
+     * @param vertex label of the new vertex
+     */
+    public void vertexAdded(L vertex);
+    
+    /**
+     * Called when an edge is added, reweighted, or removed by set().
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param oldWeight previous weight of the edge, or zero if there was none
+     * @param newWeight new weight of the edge, or zero if it was removed
+     */
+    public void edgeSet(L source, L target, int oldWeight, int newWeight);
+    
+    /**
+     * Called when a vertex is removed. Edges to and from the vertex are
+     * removed with it and are not reported separately.
+     * 
+     * @param vertex label of the removed vertex
+     */
+    public void vertexRemoved(L vertex);
+    
+}
@@ -0,0 +1,182 @@
+package graph;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable summary of the size and shape of a graph: vertex and edge counts,
+ * in- and out-degree histograms, the distribution of edge weights, and an
+ * estimate of the heap the graph's representation retains.
+ */
+public final class GraphStats {
+
+    private final String representation;
+    private final int vertexCount;
+    private final long edgeCount;
+    private final SortedMap<Integer, Integer> outDegrees;
+    private final SortedMap<Integer, Integer> inDegrees;
+    private final SortedMap<Integer, Long> weights;
+    private final int minWeight;
+    private final int maxWeight;
+    private final long totalWeight;
+    private final long heapBytes;
+
+    // Abstraction function:
+    //   AF(...) = statistics of one graph at one moment: outDegrees and
+    //     inDegrees map each degree to the number of vertices with that
+    //     degree; weights maps each power of two p to the number of edges
+    //     whose weight is in [p, 2p); heapBytes < 0 means no estimate
+    // Representation invariant:
+    //   histogram counts are positive
+    //   outDegrees and inDegrees counts sum to vertexCount
+    //   weights counts sum to edgeCount
+    //   edgeCount == 0 or 0 < minWeight <= maxWeight
+    // Safety from rep exposure:
+    //   all fields are private and final; histograms are unmodifiable
+
+    private GraphStats(Builder b, String representation, long heapBytes) {
+        this.representation = representation;
+        this.vertexCount = b.vertexCount;
+        this.edgeCount = b.edgeCount;
+        this.outDegrees = Collections.unmodifiableSortedMap(b.outDegrees);
+        this.inDegrees = Collections.unmodifiableSortedMap(b.inDegrees);
+        this.weights = Collections.unmodifiableSortedMap(b.weights);
+        this.minWeight = b.edgeCount == 0 ? 0 : b.minWeight;
+        this.maxWeight = b.maxWeight;
+        this.totalWeight = b.totalWeight;
+        this.heapBytes = heapBytes;
+        checkRep();
+    }
+
+    private void checkRep() {
+        long out = 0, in = 0, w = 0;
+        for (int count : outDegrees.values()) out += count;
+        for (int count : inDegrees.values()) in += count;
+        for (long count : weights.values()) w += count;
+        assert out == vertexCount && in == vertexCount : "degree histograms must cover every vertex";
+        assert w == edgeCount : "weight histogram must cover every edge";
+        assert edgeCount == 0 || (0 < minWeight && minWeight <= maxWeight);
+    }
+
+    /**
+     * Compute statistics for any graph. The representations in this package
+     * are summarized in one pass over their own structures and include a heap
+     * estimate; other graphs are read through targets() and sources() and
+     * report no estimate.
+     * 
+     * @param graph graph to summarize
+     * @param <L> type of vertex labels in graph
+     * @return statistics of graph
+     */
+    public static <L> GraphStats of(Graph<L> graph) {
+        if (graph instanceof ConcreteEdgesGraph) {
+            return ((ConcreteEdgesGraph) graph).stats();
+        }
+        if (graph instanceof ConcreteVerticesGraph) {
+            return ((ConcreteVerticesGraph) graph).stats();
+        }
+        if (graph instanceof SortedRunGraph) {
+            return ((SortedRunGraph) graph).stats();
+        }
+        Builder b = new Builder();
+        for (L vertex : graph.vertices()) {
+            Map<L, Integer> targets = graph.targets(vertex);
+            b.vertex(targets.size(), graph.sources(vertex).size());
+            for (int weight : targets.values()) {
+                b.edge(weight);
+            }
+        }
+        return b.build(graph.getClass().getSimpleName(), -1);
+    }
+
+    /** @return name of the summarized graph's representation */
+    public String representation() { return representation; }
+
+    /** @return number of vertices */
+    public int vertexCount() { return vertexCount; }
+
+    /** @return number of edges */
+    public long edgeCount() { return edgeCount; }
+
+    /** @return map from out-degree to number of vertices with that out-degree */
+    public SortedMap<Integer, Integer> outDegreeHistogram() { return outDegrees; }
+
+    /** @return map from in-degree to number of vertices with that in-degree */
+    public SortedMap<Integer, Integer> inDegreeHistogram() { return inDegrees; }
+
+    /**
+     * @return map from each power of two p to the number of edges whose weight
+     *         is at least p and less than 2p
+     */
+    public SortedMap<Integer, Long> weightHistogram() { return weights; }
+
+    /** @return smallest edge weight, or 0 if there are no edges */
+    public int minWeight() { return minWeight; }
+
+    /** @return largest edge weight, or 0 if there are no edges */
+    public int maxWeight() { return maxWeight; }
+
+    /** @return sum of all edge weights */
+    public long totalWeight() { return totalWeight; }
+
+    /** @return mean edge weight, or 0 if there are no edges */
+    public double meanWeight() {
+        return edgeCount == 0 ? 0 : (double) totalWeight / edgeCount;
+    }
+
+    /** @return mean out-degree, or 0 if there are no vertices */
+    public double meanDegree() {
+        return vertexCount == 0 ? 0 : (double) edgeCount / vertexCount;
+    }
+
+    /**
+     * @return estimated bytes of heap retained by the graph, including its
+     *         labels, or -1 if the representation has no estimate
+     */
+    public long estimatedHeapBytes() { return heapBytes; }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d vertices, %d edges, mean degree %.2f, max out-degree %d, "
+                + "max in-degree %d, weights %d..%d (mean %.2f), ~%s heap",
+                representation, vertexCount, edgeCount, meanDegree(),
+                outDegrees.isEmpty() ? 0 : outDegrees.lastKey(),
+                inDegrees.isEmpty() ? 0 : inDegrees.lastKey(),
+                minWeight, maxWeight, meanWeight(),
+                heapBytes < 0 ? "unknown" : heapBytes + " bytes");
+    }
+
+    /**
+     * Accumulates statistics in one pass over a graph's vertices and edges.
+     */
+    static final class Builder {
+        private int vertexCount = 0;
+        private long edgeCount = 0;
+        private final SortedMap<Integer, Integer> outDegrees = new TreeMap<>();
+        private final SortedMap<Integer, Integer> inDegrees = new TreeMap<>();
+        private final SortedMap<Integer, Long> weights = new TreeMap<>();
+        private int minWeight = Integer.MAX_VALUE;
+        private int maxWeight = 0;
+        private long totalWeight = 0;
+
+        void vertex(int outDegree, int inDegree) {
+            vertexCount++;
+            outDegrees.merge(outDegree, 1, Integer::sum);
+            inDegrees.merge(inDegree, 1, Integer::sum);
+        }
+
+        void edge(int weight) {
+            edgeCount++;
+            weights.merge(Integer.highestOneBit(weight), 1L, Long::sum);
+            minWeight = Math.min(minWeight, weight);
+            maxWeight = Math.max(maxWeight, weight);
+            totalWeight += weight;
+        }
+
+        GraphStats build(String representation, long heapBytes) {
+            return new GraphStats(this, representation, heapBytes);
+        }
+    }
+}
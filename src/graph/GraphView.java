@@ -0,0 +1,338 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A read-only, lazily evaluated view of another graph.
+ * A view copies nothing: every observer reads the underlying graph and
+ * applies the view's predicates on access, so the view always reflects the
+ * current state of the underlying graph. Mutators throw
+ * UnsupportedOperationException.
+ * 
+ * <p>Observers of a view cost at least as much as the same observers on the
+ * underlying graph. A view that is queried repeatedly can be materialize()d
+ * into a compact immutable copy.
+ * 
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public abstract class GraphView<L> implements Graph<L> {
+    
+    final Graph<L> base;
+    
+    // Abstraction function:
+    //   AF(base, subclass predicates) = the graph derived from base by the
+    //     subclass's transformation, evaluated on each access
+    // Representation invariant:
+    //   base != null
+    // Safety from rep exposure:
+    //   base is never returned; observers return unmodifiable views
+    
+    GraphView(Graph<L> base) {
+        if (base == null) throw new IllegalArgumentException("Underlying graph cannot be null");
+        this.base = base;
+    }
+    
+    /**
+     * Make a view with every edge of a graph reversed.
+     * 
+     * @param graph underlying graph
+     * @param <L> type of vertex labels
+     * @return a view with the vertices of graph and an edge from t to s of
+     *         weight w for each edge from s to t of weight w in graph
+     */
+    public static <L> GraphView<L> reversed(Graph<L> graph) {
+        return new Reversed<>(graph);
+    }
+    
+    /**
+     * Make a view with only the edges of a graph that pass a test.
+     * 
+     * @param graph underlying graph
+     * @param keep test that an edge must pass to appear in the view
+     * @param <L> type of vertex labels
+     * @return a view with all vertices of graph and the edges of graph that
+     *         pass keep
+     */
+    public static <L> GraphView<L> filtered(Graph<L> graph, EdgePredicate<? super L> keep) {
+        return new Filtered<>(graph, keep);
+    }
+    
+    /**
+     * Make a view with only the edges of a graph weighing more than a bound.
+     * 
+     * @param graph underlying graph
+     * @param bound weight an edge must exceed to appear in the view
+     * @param <L> type of vertex labels
+     * @return a view with all vertices of graph and its edges of weight
+     *         strictly greater than bound
+     */
+    public static <L> GraphView<L> heavierThan(Graph<L> graph, int bound) {
+        return new Filtered<>(graph, (source, target, weight) -> weight > bound);
+    }
+    
+    /**
+     * Make the subgraph of a graph induced by the vertices that pass a test.
+     * 
+     * @param graph underlying graph
+     * @param keep test that a vertex must pass to appear in the view
+     * @param <L> type of vertex labels
+     * @return a view with the vertices of graph that pass keep, and the edges
+     *         of graph between two such vertices
+     */
+    public static <L> GraphView<L> induced(Graph<L> graph, Predicate<? super L> keep) {
+        return new Induced<>(graph, keep);
+    }
+    
+    /**
+     * Copy the current state of this view into a compact immutable graph.
+     * Later changes to the underlying graph are not reflected in the copy.
+     * 
+     * @return an immutable graph with the same vertices and edges as this view
+     */
+    public Graph<L> materialize() {
+        return CompactGraph.copyOf(this);
+    }
+    
+    /**
+     * Unsupported: views are read-only.
+     * 
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean add(L vertex) {
+        throw new UnsupportedOperationException("graph views are read-only");
+    }
+    
+    /**
+     * Unsupported: views are read-only.
+     * 
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("graph views are read-only");
+    }
+    
+    /**
+     * Unsupported: views are read-only.
+     * 
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("graph views are read-only");
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append("View(");
+        for (L vertex : vertices()) {
+            sb.append(vertex).append(" -> ").append(targets(vertex)).append("; ");
+        }
+        return sb.append(")").toString();
+    }
+    
+    private static final class Reversed<L> extends GraphView<L> {
+        Reversed(Graph<L> base) {
+            super(base);
+        }
+        
+        @Override
+        public Set<L> vertices() {
+            return Collections.unmodifiableSet(base.vertices());
+        }
+        
+        @Override
+        public Map<L, Integer> sources(L target) {
+            return Collections.unmodifiableMap(base.targets(target));
+        }
+        
+        @Override
+        public Map<L, Integer> targets(L source) {
+            return Collections.unmodifiableMap(base.sources(source));
+        }
+    }
+    
+    private static final class Filtered<L> extends GraphView<L> {
+        private final EdgePredicate<? super L> keep;
+        
+        Filtered(Graph<L> base, EdgePredicate<? super L> keep) {
+            super(base);
+            this.keep = keep;
+        }
+        
+        @Override
+        public Set<L> vertices() {
+            return Collections.unmodifiableSet(base.vertices());
+        }
+        
+        @Override
+        public Map<L, Integer> sources(L target) {
+            return new FilteredWeights<>(base.sources(target), (source, weight) -> keep.test(source, target, weight));
+        }
+        
+        @Override
+        public Map<L, Integer> targets(L source) {
+            return new FilteredWeights<>(base.targets(source), (target, weight) -> keep.test(source, target, weight));
+        }
+    }
+    
+    private static final class Induced<L> extends GraphView<L> {
+        private final Predicate<? super L> keep;
+        
+        Induced(Graph<L> base, Predicate<? super L> keep) {
+            super(base);
+            this.keep = keep;
+        }
+        
+        @Override
+        public Set<L> vertices() {
+            Set<L> all = base.vertices();
+            return new AbstractSet<L>() {
+                @Override
+                public boolean contains(Object o) {
+                    return all.contains(o) && test(o);
+                }
+                
+                @Override
+                public Iterator<L> iterator() {
+                    return new FilteringIterator<>(all.iterator(), keep);
+                }
+                
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (L vertex : all) {
+                        if (keep.test(vertex)) size++;
+                    }
+                    return size;
+                }
+            };
+        }
+        
+        @SuppressWarnings("unchecked")
+        private boolean test(Object vertex) {
+            try {
+                return keep.test((L) vertex);
+            } catch (ClassCastException e) {
+                return false;
+            }
+        }
+        
+        @Override
+        public Map<L, Integer> sources(L target) {
+            if (!keep.test(target)) {
+                return Collections.emptyMap();
+            }
+            return new FilteredWeights<>(base.sources(target), (source, weight) -> keep.test(source));
+        }
+        
+        @Override
+        public Map<L, Integer> targets(L source) {
+            if (!keep.test(source)) {
+                return Collections.emptyMap();
+            }
+            return new FilteredWeights<>(base.targets(source), (target, weight) -> keep.test(target));
+        }
+    }
+    
+    /**
+     * Unmodifiable view of the entries of a label-to-weight map that pass a
+     * test, evaluated on each access.
+     */
+    private static final class FilteredWeights<L> extends AbstractMap<L, Integer> {
+        private final Map<L, Integer> weights;
+        private final BiPredicate<? super L, Integer> keep;
+        
+        FilteredWeights(Map<L, Integer> weights, BiPredicate<? super L, Integer> keep) {
+            this.weights = weights;
+            this.keep = keep;
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        public Integer get(Object key) {
+            Integer weight = weights.get(key);
+            return weight != null && keep.test((L) key, weight) ? weight : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+        
+        @Override
+        public Set<Map.Entry<L, Integer>> entrySet() {
+            Set<Map.Entry<L, Integer>> entries = weights.entrySet();
+            Predicate<Map.Entry<L, Integer>> passes = entry -> keep.test(entry.getKey(), entry.getValue());
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override
+                public Iterator<Map.Entry<L, Integer>> iterator() {
+                    Iterator<Map.Entry<L, Integer>> it = new FilteringIterator<>(entries.iterator(), passes);
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+                        
+                        @Override
+                        public Map.Entry<L, Integer> next() {
+                            return new AbstractMap.SimpleImmutableEntry<>(it.next());
+                        }
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (Map.Entry<L, Integer> entry : entries) {
+                        if (passes.test(entry)) size++;
+                    }
+                    return size;
+                }
+            };
+        }
+    }
+    
+    /**
+     * Read-only iterator over the elements of another iterator that pass a test.
+     */
+    private static final class FilteringIterator<E> implements Iterator<E> {
+        private final Iterator<? extends E> it;
+        private final Predicate<? super E> keep;
+        private E next;
+        private boolean ready = false;
+        
+        FilteringIterator(Iterator<? extends E> it, Predicate<? super E> keep) {
+            this.it = it;
+            this.keep = keep;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (!ready && it.hasNext()) {
+                E candidate = it.next();
+                if (keep.test(candidate)) {
+                    next = candidate;
+                    ready = true;
+                }
+            }
+            return ready;
+        }
+        
+        @Override
+        public E next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ready = false;
+            return next;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package graph;
+
+/**
+ * Rough retained-size arithmetic for a 64-bit HotSpot JVM with compressed
+ * object pointers (12-byte headers, 4-byte references, 8-byte alignment) and
+ * compact Latin-1 strings. Estimates are for capacity planning, not exact.
+ */
+final class HeapSize {
+
+    static final int HEADER = 12;
+    static final int REFERENCE = 4;
+    static final int ARRAY_HEADER = 16;
+
+    /** A java.lang.Integer that is not in the small-value cache. */
+    static final long BOXED_INT = align(HEADER + 4);
+    /** One HashMap.Node: hash, key, value, next. */
+    static final long HASH_NODE = align(HEADER + 4 + 3 * REFERENCE);
+    /** One TreeMap.Entry: key, value, left, right, parent, color. */
+    static final long TREE_ENTRY = align(HEADER + 5 * REFERENCE + 1);
+    /** Extra size of a LinkedHashMap.Entry over a HashMap.Node: before, after. */
+    static final long LINKED_NODE_EXTRA = align(HEADER + 4 + 5 * REFERENCE) - HASH_NODE;
+    /** An empty HashMap object without its table. */
+    static final long HASH_MAP = align(HEADER + 3 * REFERENCE + 4 * 4);
+    /** A HashSet object wrapping its HashMap. */
+    static final long HASH_SET = align(HEADER + REFERENCE) + HASH_MAP;
+    /** A TreeSet object wrapping its TreeMap. */
+    static final long TREE_SET = align(HEADER + REFERENCE) + align(HEADER + 4 * REFERENCE + 2 * 4);
+    /** An ArrayList object without its element array. */
+    static final long ARRAY_LIST = align(HEADER + 2 * 4 + REFERENCE);
+
+    private HeapSize() {
+        throw new AssertionError("not instantiable");
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static long referenceArray(long length) {
+        return align(ARRAY_HEADER + REFERENCE * length);
+    }
+
+    static long intArray(long length) {
+        return align(ARRAY_HEADER + 4 * length);
+    }
+
+    /**
+     * @return size of a String and its backing array, assuming Latin-1 text
+     */
+    static long string(String s) {
+        return align(HEADER + REFERENCE + 4 + 1 + 1) + align(ARRAY_HEADER + s.length());
+    }
+
+    /**
+     * @return table length of a HashMap holding size entries at the default
+     *         load factor
+     */
+    static long hashTableLength(long size) {
+        long needed = (long) Math.ceil(size / 0.75);
+        long length = 16;
+        while (length < needed) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    /**
+     * @return size of a HashMap with size entries, excluding keys and values
+     */
+    static long hashMap(long size) {
+        return HASH_MAP + (size == 0 ? 0 : referenceArray(hashTableLength(size))) + size * HASH_NODE;
+    }
+
+    /**
+     * @return size of a HashSet with size elements, excluding the elements
+     */
+    static long hashSet(long size) {
+        return HASH_SET - HASH_MAP + hashMap(size);
+    }
+
+    /**
+     * @return size of an ArrayList holding size elements, excluding them
+     */
+    static long arrayList(long size) {
+        return ARRAY_LIST + referenceArray(size);
+    }
+}
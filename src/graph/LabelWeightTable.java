@@ -0,0 +1,395 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Mutable map from String labels to positive int weights, stored in two
+ * parallel arrays with open addressing and linear probing. There is no
+ * boxing and no per-entry node: an entry costs one key reference and one
+ * int. Removal shifts later entries of the probe run back, so no tombstones
+ * build up.
+ */
+class LabelWeightTable {
+
+    private static final int MIN_CAPACITY = 4;
+    private static final String[] NO_KEYS = {};
+    private static final int[] NO_WEIGHTS = {};
+
+    private final int initialCapacity;
+    private String[] keys = NO_KEYS;
+    private int[] weights = NO_WEIGHTS;
+    private int size = 0;
+    private int modCount = 0;
+    private Map<String, Integer> view = null;
+
+    // Abstraction function:
+    //   AF(keys, weights, size) = {keys[i] -> weights[i] | keys[i] != null}
+    // Representation invariant:
+    //   keys.length == weights.length, zero or a power of two
+    //   initialCapacity is a power of two >= MIN_CAPACITY
+    //   size == number of non-null keys, and size < 3/4 keys.length unless both are 0
+    //   weights[i] > 0 where keys[i] != null
+    //   no key occurs twice, and each key is reachable by probing forward
+    //     from its home slot without crossing a null slot
+    // Safety from rep exposure:
+    //   the arrays are private; asMap() is a read-only view, whose iterators
+    //   fail fast through modCount, since a removal can shift entries into
+    //   slots an iterator has already passed
+
+    /**
+     * Make an empty table sized for about expectedSize entries. No arrays
+     * are allocated until the first put().
+     *
+     * @param expectedSize number of entries expected, nonnegative
+     */
+    LabelWeightTable(int expectedSize) {
+        this.initialCapacity = capacityFor(expectedSize);
+    }
+
+    private void checkRep() {
+        assert keys.length == weights.length && (keys.length & (keys.length - 1)) == 0;
+        assert keys.length == 0 ? size == 0 : size < keys.length / 4 * 3;
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 <= entries) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * @param key a label
+     * @return the weight of key, or 0 if key is absent
+     */
+    int get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? 0 : weights[i];
+    }
+
+    /**
+     * @param key a label, not null
+     * @param weight its new weight, positive
+     * @return the previous weight of key, or 0 if it was absent
+     */
+    int put(String key, int weight) {
+        assert weight > 0;
+        if (keys.length == 0) {
+            keys = new String[initialCapacity];
+            weights = new int[initialCapacity];
+        }
+        int mask = keys.length - 1;
+        int i = home(key, mask);
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) {
+                int previous = weights[i];
+                weights[i] = weight;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        weights[i] = weight;
+        modCount++;
+        if (++size >= keys.length / 4 * 3) {
+            resize(keys.length << 1);
+        }
+        checkRep();
+        return 0;
+    }
+
+    /**
+     * @param key a label
+     * @return the weight key had, or 0 if it was absent
+     */
+    int remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return 0;
+        }
+        int previous = weights[i];
+        // backward-shift deletion: move each later entry of the run into the
+        // gap unless its home slot lies cyclically after the gap
+        int mask = keys.length - 1;
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = home(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                weights[gap] = weights[j];
+                gap = j;
+            }
+        }
+        keys[gap] = null;
+        weights[gap] = 0;
+        size--;
+        modCount++;
+        checkRep();
+        return previous;
+    }
+
+    /**
+     * @return number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return length of the slot arrays; slots are numbered 0..capacity()-1
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return number of insertions and removals so far; slot contents may
+     *         move whenever it changes
+     */
+    int modCount() {
+        return modCount;
+    }
+
+    /**
+     * @param slot a slot number
+     * @return the key in slot, or null if the slot is empty
+     */
+    String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @param slot a slot number whose key is not null
+     * @return the weight in slot
+     */
+    int weightAt(int slot) {
+        return weights[slot];
+    }
+
+    /**
+     * @return read-only live Map view of this table; the same object on
+     *         every call
+     */
+    Map<String, Integer> asMap() {
+        if (view == null) {
+            view = new View();
+        }
+        return view;
+    }
+
+    /**
+     * Get the k heaviest entries in one pass over the slots, keeping the best
+     * k seen so far in a min-heap of slot numbers: O(capacity + size log k)
+     * time and O(k) extra space, with nothing retained between calls.
+     *
+     * @param k maximum number of entries to return, nonnegative
+     * @return a fresh map of the k heaviest entries, iterating in order of
+     *         descending weight and then ascending key
+     */
+    Map<String, Integer> top(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be nonnegative");
+        }
+        int[] heap = new int[Math.min(k, size)];
+        int n = 0;
+        for (int slot = 0; slot < keys.length && heap.length > 0; slot++) {
+            if (keys[slot] == null) {
+                continue;
+            }
+            if (n < heap.length) {
+                heap[n] = slot;
+                siftUp(heap, n++);
+            } else if (ranksBefore(slot, heap[0])) {
+                heap[0] = slot;
+                siftDown(heap, n, 0);
+            }
+        }
+        // popping yields the weakest first, so fill from the back
+        int[] order = new int[n];
+        while (n > 0) {
+            order[n - 1] = heap[0];
+            heap[0] = heap[--n];
+            siftDown(heap, n, 0);
+        }
+        Map<String, Integer> top = new LinkedHashMap<>(GraphBuilder.hashCapacity(order.length));
+        for (int slot : order) {
+            top.put(keys[slot], weights[slot]);
+        }
+        return top;
+    }
+
+    /** @return true if the entry in slot a comes before the one in slot b in top() */
+    private boolean ranksBefore(int a, int b) {
+        return weights[a] != weights[b] ? weights[a] > weights[b] : keys[a].compareTo(keys[b]) < 0;
+    }
+
+    // heap[0] is the slot that ranks last among heap[0..n-1]
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ranksBefore(heap[parent], heap[i])) {
+                return;
+            }
+            swap(heap, parent, i);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int n, int i) {
+        while (true) {
+            int weakest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < n; child++) {
+                if (ranksBefore(heap[weakest], heap[child])) {
+                    weakest = child;
+                }
+            }
+            if (weakest == i) {
+                return;
+            }
+            swap(heap, weakest, i);
+            i = weakest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
+    }
+
+    /**
+     * @return estimated bytes of heap retained by this table, excluding keys
+     */
+    long estimatedHeapBytes() {
+        long bytes = HeapSize.align(HeapSize.HEADER + 3 * HeapSize.REFERENCE + 2 * 4);
+        if (keys.length > 0) {
+            bytes += HeapSize.referenceArray(keys.length) + HeapSize.intArray(weights.length);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return estimated bytes retained by a HashMap<String, Integer> of size
+     *         entries with the given weights, excluding keys: the layout this
+     *         table replaces
+     */
+    static long hashMapHeapBytes(int size, Iterable<Integer> weights) {
+        long bytes = HeapSize.hashMap(size);
+        for (int weight : weights) {
+            // Integer.valueOf caches small values
+            bytes += weight > 127 ? HeapSize.BOXED_INT : 0;
+        }
+        return bytes;
+    }
+
+    private int indexOf(Object key) {
+        if (key == null || keys.length == 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int i = home(key, mask); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldWeights = weights;
+        keys = new String[capacity];
+        weights = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = home(oldKeys[j], mask);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                weights[i] = oldWeights[j];
+            }
+        }
+    }
+
+    private static int home(Object key, int mask) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Read-only Map over the table. Lookups do not allocate beyond boxing
+     * the returned weight.
+     */
+    private final class View extends AbstractMap<String, Integer> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : weights[i];
+        }
+
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Integer>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, Integer>> iterator() {
+                    return new Iterator<Map.Entry<String, Integer>>() {
+                        private final String[] slots = keys;
+                        private final int[] slotWeights = weights;
+                        private final int expectedModCount = modCount;
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < slots.length && slots[from] == null) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < slots.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Integer> next() {
+                            if (modCount != expectedModCount) {
+                                throw new ConcurrentModificationException();
+                            }
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<String, Integer> entry = new SimpleImmutableEntry<>(slots[next], slotWeights[next]);
+                            next = advance(next + 1);
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
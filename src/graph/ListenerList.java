@@ -0,0 +1,52 @@
+package graph;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The listeners registered with one graph, notified in registration order.
+ */
+class ListenerList implements GraphListener<String> {
+
+    private final List<GraphListener<String>> listeners = new CopyOnWriteArrayList<>();
+
+    // Abstraction function:
+    //   AF(listeners) = the listeners of a graph, in registration order
+    // Representation invariant:
+    //   listeners contains no null
+    // Safety from rep exposure:
+    //   listeners is private and never returned
+
+    public void add(GraphListener<String> listener) {
+        if (listener == null) throw new IllegalArgumentException("Listener cannot be null");
+        listeners.add(listener);
+    }
+
+    public boolean remove(GraphListener<String> listener) {
+        return listeners.remove(listener);
+    }
+
+    @Override
+    public void vertexAdded(String vertex) {
+        for (GraphListener<String> listener : listeners) {
+            listener.vertexAdded(vertex);
+        }
+    }
+
+    @Override
+    public void edgeSet(String source, String target, int oldWeight, int newWeight) {
+        if (oldWeight == newWeight) {
+            return;
+        }
+        for (GraphListener<String> listener : listeners) {
+            listener.edgeSet(source, target, oldWeight, newWeight);
+        }
+    }
+
+    @Override
+    public void vertexRemoved(String vertex) {
+        for (GraphListener<String> listener : listeners) {
+            listener.vertexRemoved(vertex);
+        }
+    }
+}
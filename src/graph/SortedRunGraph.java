@@ -0,0 +1,715 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A mutable weighted directed graph organized for write bursts followed by
+ * read-heavy serving, in the manner of a log-structured merge tree.
+ *
+ * <p>Labels are interned to int ids. set() writes into a small sorted
+ * memtable; when the memtable fills it is flushed into an immutable run of
+ * parallel int arrays of source id, target id and weight, sorted by source
+ * and then target, with a permutation sorted by target for sources().
+ * Reads consult the memtable and then binary-search the runs, newest first.
+ * Removing an edge writes a zero-weight tombstone; removing a vertex retires
+ * its id, so its edges vanish from reads at once and are dropped from the
+ * runs by the next compaction.
+ *
+ * <p>When there are more than maxRuns runs, a shared background thread
+ * merges the newest runs of similar size into one, so run sizes grow
+ * geometrically. compact() merges every run synchronously, after flushing
+ * the memtable, for the transition from ingestion to serving.
+ *
+ * <p>Instances are thread-safe: every public method is synchronized on the
+ * graph, and background merges only read immutable runs.
+ */
+public class SortedRunGraph implements Graph<String> {
+
+    /** Number of pending edge writes that triggers a flush, by default. */
+    public static final int DEFAULT_MEMTABLE_CAPACITY = 4096;
+    /** Number of runs above which a background compaction starts, by default. */
+    public static final int DEFAULT_MAX_RUNS = 4;
+
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "SortedRunGraph-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int memtableCapacity;
+    private final int maxRuns;
+    private final Map<String, Integer> ids;
+    private final List<String> labels;
+    private final BitSet retired = new BitSet();
+    private final NavigableMap<Long, Integer> bySource = new TreeMap<>();
+    private final NavigableMap<Long, Integer> byTarget = new TreeMap<>();
+    private Run[] runs = new Run[0];
+    private boolean compacting = false;
+    private int modCount = 0;
+
+    // Abstraction function:
+    //   AF(ids, labels, bySource, runs) = the graph whose vertices are the keys
+    //     of ids, with an edge from labels[s] to labels[t] weighing w > 0 where
+    //     w is the weight of (s, t) in bySource if present there, else in the
+    //     newest run containing (s, t), provided labels[s] and labels[t] are
+    //     both still live; weight 0 marks a removed edge
+    // Representation invariant:
+    //   memtableCapacity > 0, maxRuns > 0
+    //   ids maps each live label to its index in labels; labels[i] is null
+    //     iff id i has been retired by remove(), iff retired holds i
+    //   bySource holds key (s << 32 | t) exactly when byTarget holds key
+    //     (t << 32 | s), with the same weight >= 0
+    //   bySource.size() < memtableCapacity
+    //   runs are oldest first; each is sorted and has no duplicate edges
+    //   compacting is true iff a background merge of consecutive runs is pending
+    //   modCount changes whenever the abstract graph does
+    // Safety from rep exposure:
+    //   all fields are private; vertices() returns a fresh set; sources() and
+    //   targets() return read-only views that iterate a copy, kept until the
+    //   graph next changes; runs are immutable and never returned
+    // Thread safety:
+    //   all rep access is synchronized on this; a background merge reads only
+    //   the immutable runs and a copy of the retired ids, and installs its
+    //   result under the lock
+
+    /**
+     * Make an empty graph with the default memtable capacity and run limit.
+     */
+    public SortedRunGraph() {
+        this(DEFAULT_MEMTABLE_CAPACITY, DEFAULT_MAX_RUNS);
+    }
+
+    /**
+     * Make an empty graph.
+     *
+     * @param memtableCapacity number of pending edge writes that triggers a flush, positive
+     * @param maxRuns number of runs above which a background compaction starts, positive
+     */
+    public SortedRunGraph(int memtableCapacity, int maxRuns) {
+        this(0, memtableCapacity, maxRuns);
+    }
+
+    /**
+     * Make an empty graph with its label tables pre-sized.
+     *
+     * @param expectedVertices number of vertices expected, nonnegative
+     * @param memtableCapacity number of pending edge writes that triggers a flush, positive
+     * @param maxRuns number of runs above which a background compaction starts, positive
+     */
+    public SortedRunGraph(int expectedVertices, int memtableCapacity, int maxRuns) {
+        if (expectedVertices < 0) throw new IllegalArgumentException("expectedVertices must be nonnegative");
+        if (memtableCapacity <= 0) throw new IllegalArgumentException("memtableCapacity must be positive");
+        if (maxRuns <= 0) throw new IllegalArgumentException("maxRuns must be positive");
+        this.ids = new HashMap<>(GraphBuilder.hashCapacity(expectedVertices));
+        this.labels = new ArrayList<>(expectedVertices);
+        this.memtableCapacity = memtableCapacity;
+        this.maxRuns = maxRuns;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert ids.size() <= labels.size();
+        assert retired.length() <= labels.size();
+        assert bySource.size() == byTarget.size() : "memtable indexes must agree";
+        assert bySource.size() < memtableCapacity : "full memtable must be flushed";
+    }
+
+    @Override
+    public synchronized boolean add(String vertex) {
+        if (vertex == null) throw new IllegalArgumentException("Vertex cannot be null");
+        if (ids.containsKey(vertex)) {
+            return false;
+        }
+        intern(vertex);
+        modCount++;
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public synchronized int set(String source, String target, int weight) {
+        if (source == null || target == null) throw new IllegalArgumentException("Vertices cannot be null");
+        if (weight < 0) throw new IllegalArgumentException("Edge weight cannot be negative");
+        Integer s = ids.get(source);
+        Integer t = ids.get(target);
+        if (weight == 0 && (s == null || t == null)) {
+            return 0;
+        }
+        if (s == null) {
+            s = intern(source);
+        }
+        if (t == null) {
+            // a new self-loop already interned its target as the source
+            t = target.equals(source) ? s : intern(target);
+        }
+        int previous = weight(s, t);
+        if (previous != weight) {
+            bySource.put(pack(s, t), weight);
+            byTarget.put(pack(t, s), weight);
+            modCount++;
+            if (bySource.size() >= memtableCapacity) {
+                flush();
+            }
+        }
+        checkRep();
+        return previous;
+    }
+
+    @Override
+    public synchronized boolean remove(String vertex) {
+        Integer id = ids.remove(vertex);
+        if (id == null) {
+            return false;
+        }
+        labels.set(id, null);
+        retired.set(id);
+        modCount++;
+        // pending writes of the retired id are dropped now; those already in
+        // runs are hidden by reads and dropped by compaction
+        NavigableMap<Long, Integer> out = bySource.subMap(pack(id, 0), true, pack(id, -1), true);
+        for (long key : out.keySet()) {
+            byTarget.remove(pack((int) key, id));
+        }
+        out.clear();
+        NavigableMap<Long, Integer> in = byTarget.subMap(pack(id, 0), true, pack(id, -1), true);
+        for (long key : in.keySet()) {
+            bySource.remove(pack((int) key, id));
+        }
+        in.clear();
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public synchronized Set<String> vertices() {
+        return Collections.unmodifiableSet(new HashSet<>(ids.keySet()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The map is a read-only view of this graph: get() binary-searches the
+     * runs for one edge, and iteration reads every source of target.
+     */
+    @Override
+    public Map<String, Integer> sources(String target) {
+        return new Neighbors(target, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The map is a read-only view of this graph: get() binary-searches the
+     * runs for one edge, and iteration reads every target of source.
+     */
+    @Override
+    public Map<String, Integer> targets(String source) {
+        return new Neighbors(source, true);
+    }
+
+    private synchronized Map<String, Integer> sourcesOf(String target) {
+        Integer t = ids.get(target);
+        if (t == null) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, Integer> newest = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : byTarget.subMap(pack(t, 0), true, pack(t, -1), true).entrySet()) {
+            newest.put((int) (long) entry.getKey(), entry.getValue());
+        }
+        for (int r = runs.length - 1; r >= 0; r--) {
+            Run run = runs[r];
+            for (int j = run.firstTo(t); j < run.size() && run.targets[run.byTarget[j]] == t; j++) {
+                int i = run.byTarget[j];
+                newest.putIfAbsent(run.sources[i], run.weights[i]);
+            }
+        }
+        return labelled(newest);
+    }
+
+    private synchronized Map<String, Integer> targetsOf(String source) {
+        Integer s = ids.get(source);
+        if (s == null) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, Integer> newest = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : bySource.subMap(pack(s, 0), true, pack(s, -1), true).entrySet()) {
+            newest.put((int) (long) entry.getKey(), entry.getValue());
+        }
+        for (int r = runs.length - 1; r >= 0; r--) {
+            Run run = runs[r];
+            for (int i = run.firstFrom(s); i < run.size() && run.sources[i] == s; i++) {
+                newest.putIfAbsent(run.targets[i], run.weights[i]);
+            }
+        }
+        return labelled(newest);
+    }
+
+    /**
+     * @return weight of the edge from source to target, or zero if there is none
+     */
+    private synchronized int weight(String source, String target) {
+        Integer s = ids.get(source);
+        Integer t = ids.get(target);
+        return s == null || t == null ? 0 : weight(s, t);
+    }
+
+    /**
+     * Move every pending write into a new run, without waiting for the
+     * memtable to fill.
+     */
+    public synchronized void flush() {
+        int n = 0;
+        int[] sources = new int[bySource.size()];
+        int[] targets = new int[bySource.size()];
+        int[] weights = new int[bySource.size()];
+        for (Map.Entry<Long, Integer> entry : bySource.entrySet()) {
+            int s = (int) (entry.getKey() >>> 32);
+            int t = (int) (long) entry.getKey();
+            // tombstones only matter if an older run may hold the edge
+            if (!retired.get(s) && !retired.get(t) && (entry.getValue() > 0 || runs.length > 0)) {
+                sources[n] = s;
+                targets[n] = t;
+                weights[n] = entry.getValue();
+                n++;
+            }
+        }
+        bySource.clear();
+        byTarget.clear();
+        if (n > 0) {
+            runs = Arrays.copyOf(runs, runs.length + 1);
+            runs[runs.length - 1] = new Run(Arrays.copyOf(sources, n), Arrays.copyOf(targets, n),
+                    Arrays.copyOf(weights, n));
+        }
+        if (runs.length > maxRuns && !compacting) {
+            // size-tiered: merge the newest runs, reaching back only to runs
+            // no more than twice the size merged so far, so each edge is
+            // rewritten O(log n) times
+            int from = runs.length - 2;
+            long size = runs[from].size() + runs[from + 1].size();
+            while (from > 0 && runs[from - 1].size() <= 2 * size) {
+                from--;
+                size += runs[from].size();
+            }
+            compacting = true;
+            int start = from;
+            Run[] merging = Arrays.copyOfRange(runs, from, runs.length);
+            BitSet dead = (BitSet) retired.clone();
+            COMPACTOR.execute(() -> {
+                Run result = null;
+                try {
+                    result = Run.merge(merging, dead, start == 0);
+                } finally {
+                    install(start, merging.length, result);
+                }
+            });
+        }
+        checkRep();
+    }
+
+    /**
+     * Flush pending writes and merge all runs into one, dropping tombstones
+     * and the edges of removed vertices. Waits for any background compaction
+     * to finish first.
+     */
+    public synchronized void compact() {
+        while (compacting) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        flush();
+        while (compacting) {
+            // flush() may have started a background merge; let it finish
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (runs.length > 0) {
+            Run merged = Run.merge(runs, retired, true);
+            runs = merged.size() == 0 ? new Run[0] : new Run[] { merged };
+        }
+        checkRep();
+    }
+
+    /**
+     * @return number of immutable runs currently held
+     */
+    public synchronized int runCount() {
+        return runs.length;
+    }
+
+    /**
+     * Summarize this graph.
+     *
+     * @return statistics of this graph, with an estimate of the heap retained
+     *         by its runs, memtable, id tables and labels
+     */
+    public synchronized GraphStats stats() {
+        GraphStats.Builder stats = new GraphStats.Builder();
+        long bytes = HeapSize.align(HeapSize.HEADER + 4 + 4 + 4 + 7 * HeapSize.REFERENCE + 1)
+                + HeapSize.hashMap(ids.size()) + HeapSize.arrayList(labels.size())
+                + HeapSize.referenceArray(runs.length)
+                + HeapSize.align(HeapSize.HEADER + 4 + 1 + HeapSize.REFERENCE)
+                + HeapSize.align(HeapSize.ARRAY_HEADER + 8L * ((retired.length() + 63) / 64))
+                + 2 * bySource.size() * (HeapSize.TREE_ENTRY + 16 + HeapSize.BOXED_INT);
+        // one merge pass over the runs and the memtable, newest last, counting
+        // degrees by id instead of building each vertex's neighbor map
+        Run[] all = Arrays.copyOf(runs, runs.length + 1);
+        all[runs.length] = memtableRun();
+        int[] outDegree = new int[labels.size()];
+        int[] inDegree = new int[labels.size()];
+        Run.forEachNewest(all, retired, true, (s, t, weight) -> {
+            outDegree[s]++;
+            inDegree[t]++;
+            stats.edge(weight);
+        });
+        for (int id = 0; id < labels.size(); id++) {
+            if (!retired.get(id)) {
+                stats.vertex(outDegree[id], inDegree[id]);
+                bytes += HeapSize.string(labels.get(id));
+            }
+        }
+        for (Run run : runs) {
+            bytes += Run.HEAP_BYTES + 4 * HeapSize.intArray(run.size());
+        }
+        return stats.build("SortedRunGraph", bytes);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int id = 0; id < labels.size(); id++) {
+            if (labels.get(id) != null) {
+                sb.append(labels.get(id)).append(" edges: ").append(targetsOf(labels.get(id))).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Replace the count runs starting at index from by the merge result, or
+     * just end the compaction if the merge failed (result is null).
+     */
+    private synchronized void install(int from, int count, Run result) {
+        compacting = false;
+        notifyAll();
+        if (result == null) {
+            return;
+        }
+        // only flushes ran meanwhile, and they only append, so the merged
+        // runs are still at the same indices
+        List<Run> installed = new ArrayList<>(Arrays.asList(runs).subList(0, from));
+        if (result.size() != 0) {
+            installed.add(result);
+        }
+        installed.addAll(Arrays.asList(runs).subList(from + count, runs.length));
+        runs = installed.toArray(new Run[0]);
+        checkRep();
+    }
+
+    /**
+     * @return the pending writes as a run, tombstones included
+     */
+    private Run memtableRun() {
+        int n = 0;
+        int[] sources = new int[bySource.size()];
+        int[] targets = new int[bySource.size()];
+        int[] weights = new int[bySource.size()];
+        for (Map.Entry<Long, Integer> entry : bySource.entrySet()) {
+            sources[n] = (int) (entry.getKey() >>> 32);
+            targets[n] = (int) (long) entry.getKey();
+            weights[n] = entry.getValue();
+            n++;
+        }
+        return new Run(sources, targets, weights);
+    }
+
+    private int intern(String label) {
+        int id = labels.size();
+        labels.add(label);
+        ids.put(label, id);
+        return id;
+    }
+
+    private int weight(int s, int t) {
+        Integer pending = bySource.get(pack(s, t));
+        if (pending != null) {
+            return pending;
+        }
+        for (int r = runs.length - 1; r >= 0; r--) {
+            int i = runs[r].find(s, t);
+            if (i >= 0) {
+                return runs[r].weights[i];
+            }
+        }
+        return 0;
+    }
+
+    private Map<String, Integer> labelled(Map<Integer, Integer> weights) {
+        Map<String, Integer> result = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : weights.entrySet()) {
+            String label = labels.get(entry.getKey());
+            if (entry.getValue() > 0 && label != null) {
+                result.put(label, entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static long pack(int high, int low) {
+        return (long) high << 32 | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Read-only view of the edges from or to one vertex.
+     */
+    private final class Neighbors extends AbstractMap<String, Integer> {
+        private final String vertex;
+        private final boolean outgoing;
+        // guarded by the graph's lock
+        private Map<String, Integer> copy = null;
+        private int copyModCount;
+
+        Neighbors(String vertex, boolean outgoing) {
+            this.vertex = vertex;
+            this.outgoing = outgoing;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            int w = outgoing ? weight(vertex, (String) key) : weight((String) key, vertex);
+            return w == 0 ? null : w;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+            return Collections.unmodifiableMap(copy()).entrySet();
+        }
+
+        /** @return the neighbors of vertex, copied again only if the graph changed since the last copy */
+        private Map<String, Integer> copy() {
+            synchronized (SortedRunGraph.this) {
+                if (copy == null || copyModCount != modCount) {
+                    copy = outgoing ? targetsOf(vertex) : sourcesOf(vertex);
+                    copyModCount = modCount;
+                }
+                return copy;
+            }
+        }
+    }
+
+    /**
+     * Immutable sorted run of edges in parallel arrays.
+     */
+    static final class Run {
+        static final long HEAP_BYTES = HeapSize.align(HeapSize.HEADER + 4 * HeapSize.REFERENCE);
+
+        final int[] sources;
+        final int[] targets;
+        final int[] weights;
+        /** indices into the edge arrays, in order of target and then source */
+        final int[] byTarget;
+
+        // Abstraction function:
+        //   AF(sources, targets, weights) = edges (sources[i], targets[i]) of
+        //     weight weights[i], where weight 0 marks a removed edge
+        // Representation invariant:
+        //   the three edge arrays have equal length and are sorted by
+        //   (source, target) with no duplicates; byTarget is a permutation
+        //   of their indices sorted by (target, source)
+
+        Run(int[] sources, int[] targets, int[] weights) {
+            this.sources = sources;
+            this.targets = targets;
+            this.weights = weights;
+            // within one target, index order is source order
+            long[] keys = new long[sources.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = (long) targets[i] << 32 | i;
+            }
+            Arrays.sort(keys);
+            this.byTarget = new int[keys.length];
+            for (int j = 0; j < keys.length; j++) {
+                byTarget[j] = (int) keys[j];
+            }
+            checkRep();
+        }
+
+        private void checkRep() {
+            assert sources.length == targets.length && targets.length == weights.length;
+            boolean enabled = false;
+            assert enabled = true;
+            if (!enabled) return; // the loop below is O(size) even with assertions off
+            for (int i = 1; i < sources.length; i++) {
+                assert pack(sources[i - 1], targets[i - 1]) < pack(sources[i], targets[i]) : "run must be sorted";
+            }
+        }
+
+        int size() {
+            return sources.length;
+        }
+
+        /** @return index of the first edge from s or later, by binary search */
+        int firstFrom(int s) {
+            int lo = 0, hi = sources.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sources[mid] < s) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        /** @return position in byTarget of the first edge to t or later */
+        int firstTo(int t) {
+            int lo = 0, hi = byTarget.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (targets[byTarget[mid]] < t) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        /** @return index of edge (s, t), or -1 */
+        int find(int s, int t) {
+            long key = pack(s, t);
+            int lo = 0, hi = sources.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                long k = pack(sources[mid], targets[mid]);
+                if (k < key) lo = mid + 1;
+                else if (k > key) hi = mid;
+                else return mid;
+            }
+            return -1;
+        }
+
+        /**
+         * Receiver of the edges produced by forEachNewest().
+         */
+        interface EdgeVisitor {
+            void edge(int source, int target, int weight);
+        }
+
+        /**
+         * Merge consecutive runs into one in a single k-way pass, keeping the
+         * newest weight of each edge and dropping edges of retired ids.
+         *
+         * @param runs runs to merge, oldest first
+         * @param retired ids retired by remove(); not modified
+         * @param oldest true iff runs starts with the oldest run of the graph,
+         *        so that no older run remains for tombstones to hide
+         * @return the merged run, without tombstones if oldest
+         */
+        static Run merge(Run[] runs, BitSet retired, boolean oldest) {
+            int total = 0;
+            for (Run run : runs) {
+                total += run.size();
+            }
+            int[] sources = new int[total], targets = new int[total], weights = new int[total];
+            int[] n = { 0 };
+            forEachNewest(runs, retired, oldest, (source, target, weight) -> {
+                sources[n[0]] = source;
+                targets[n[0]] = target;
+                weights[n[0]] = weight;
+                n[0]++;
+            });
+            if (n[0] == total) {
+                return new Run(sources, targets, weights);
+            }
+            return new Run(Arrays.copyOf(sources, n[0]), Arrays.copyOf(targets, n[0]), Arrays.copyOf(weights, n[0]));
+        }
+
+        /**
+         * Visit the newest version of each edge of consecutive runs in one
+         * k-way pass, in (source, target) order, skipping edges of retired ids.
+         *
+         * @param runs runs to read, oldest first
+         * @param retired ids retired by remove(); not modified
+         * @param oldest true iff tombstones should be skipped too, because
+         *        no older run remains for them to hide
+         * @param visitor receives each edge kept
+         */
+        static void forEachNewest(Run[] runs, BitSet retired, boolean oldest, EdgeVisitor visitor) {
+            int[] next = new int[runs.length];
+            // min-heap of the indices of unfinished runs, by their next edge,
+            // newest run first among equal edges
+            int[] heap = new int[runs.length];
+            int size = 0;
+            for (int r = 0; r < runs.length; r++) {
+                if (runs[r].size() > 0) {
+                    heap[size++] = r;
+                }
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(runs, next, heap, size, i);
+            }
+            long last = -1;
+            while (size > 0) {
+                int r = heap[0];
+                Run run = runs[r];
+                int i = next[r];
+                long key = pack(run.sources[i], run.targets[i]);
+                // the first run to surface an edge is the newest that holds it
+                if (key != last) {
+                    last = key;
+                    int source = run.sources[i], target = run.targets[i], weight = run.weights[i];
+                    if ((weight > 0 || !oldest) && !retired.get(source) && !retired.get(target)) {
+                        visitor.edge(source, target, weight);
+                    }
+                }
+                if (++next[r] == run.size()) {
+                    heap[0] = heap[--size];
+                }
+                siftDown(runs, next, heap, size, 0);
+            }
+        }
+
+        private static void siftDown(Run[] runs, int[] next, int[] heap, int size, int i) {
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && before(runs, next, heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(runs, next, heap[child], heap[i])) {
+                    return;
+                }
+                int swap = heap[i];
+                heap[i] = heap[child];
+                heap[child] = swap;
+                i = child;
+            }
+        }
+
+        /** @return true iff run a's next edge precedes run b's, or is the same edge in a newer run */
+        private static boolean before(Run[] runs, int[] next, int a, int b) {
+            long ka = pack(runs[a].sources[next[a]], runs[a].targets[next[a]]);
+            long kb = pack(runs[b].sources[next[b]], runs[b].targets[next[b]]);
+            return ka < kb || ka == kb && a > b;
+        }
+    }
+}
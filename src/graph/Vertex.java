@@ -0,0 +1,122 @@
+package graph;
+
+import java.util.Map;
+
+class Vertex {
+    static final long HEAP_BYTES = HeapSize.align(HeapSize.HEADER + 3 * HeapSize.REFERENCE);
+
+    private final String label;
+    private final LabelWeightTable edges;
+    private final LabelWeightTable sources;
+    
+    // Constructor
+    public Vertex(String label) {
+        this(label, 0);
+    }
+    
+    public Vertex(String label, int expectedEdges) {
+        this.label = label;
+        this.edges = new LabelWeightTable(expectedEdges);
+        this.sources = new LabelWeightTable(0);
+    }
+    
+    // Abstraction function and Representation invariant for Vertex:
+    // AF(label, edges, sources) = a node labeled 'label' with directed edges and weights in 'edges',
+    //    and the labels and weights of the edges into it in 'sources'.
+    // RI: label != null, edges != null, sources != null, every weight is positive
+    //    (LabelWeightTable holds only positive weights).
+    //    sources is maintained by the graph, which keeps it the mirror of the other vertices' edges.
+
+    private void checkRep() {
+        assert label != null : "label should not be null";
+        assert edges != null : "edges table should not be null";
+        assert sources != null : "sources table should not be null";
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    public boolean addEdge(String target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Edge weight cannot be negative");
+        }
+        if (weight == 0) {
+            return edges.remove(target) != 0;
+        } else {
+            edges.put(target, weight);
+            checkRep();
+            return true;
+        }
+    }
+    
+    public boolean removeEdge(String target) {
+        return edges.remove(target) != 0;
+    }
+    
+    /**
+     * @return read-only live view of this vertex's edges, the same object on
+     *         every call
+     */
+    public Map<String, Integer> getEdges() {
+        return edges.asMap();
+    }
+    
+    /**
+     * Record the weight of the edge from source into this vertex.
+     * 
+     * @param source a label
+     * @param weight weight of the edge, or 0 if there is none any more
+     */
+    void setSource(String source, int weight) {
+        if (weight == 0) {
+            sources.remove(source);
+        } else {
+            sources.put(source, weight);
+        }
+    }
+    
+    /**
+     * @return read-only live view of the edges into this vertex, the same
+     *         object on every call
+     */
+    public Map<String, Integer> getSources() {
+        return sources.asMap();
+    }
+    
+    /**
+     * @param target a label
+     * @return weight of the edge to target, or 0 if there is none
+     */
+    public int getWeight(String target) {
+        return edges.get(target);
+    }
+    
+    /**
+     * @return number of edges from this vertex
+     */
+    public int outDegree() {
+        return edges.size();
+    }
+    
+    /**
+     * @return the table of edges from this vertex, for iteration by slot
+     *         without allocation; must not be modified
+     */
+    LabelWeightTable edgeTable() {
+        return edges;
+    }
+    
+    /**
+     * @return the table of edges into this vertex, keyed by source; must not
+     *         be modified
+     */
+    LabelWeightTable sourceTable() {
+        return sources;
+    }
+    
+    @Override
+    public String toString() {
+        return label + " edges: " + edges.asMap();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+package graph;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Mutable per-vertex adjacency kept in order of descending edge weight, so the
+ * k heaviest neighbors of a vertex can be read in O(k) after an O(1) lookup.
+ * A graph keeps one ranking for outgoing edges and one for incoming edges.
+ */
+class WeightRanking {
+
+    private final Map<String, NavigableSet<Neighbor>> ranked;
+
+    // Abstraction function:
+    //   AF(ranked) = a relation from each key vertex to its neighbors, where
+    //     each Neighbor n in ranked.get(v) is an edge between v and n.label
+    //     weighing n.weight
+    // Representation invariant:
+    //   no set in ranked is empty
+    //   every Neighbor weight is positive
+    //   no two Neighbors in a set share a label
+    // Safety from rep exposure:
+    //   ranked is private; top() and weights() return fresh maps, and
+    //   neighbors() is read-only
+
+    /**
+     * Make an empty ranking.
+     */
+    public WeightRanking() {
+        this(0);
+    }
+
+    /**
+     * Make an empty ranking sized for about expectedVertices vertices.
+     *
+     * @param expectedVertices number of vertices expected to have neighbors, nonnegative
+     */
+    public WeightRanking(int expectedVertices) {
+        ranked = new HashMap<>(GraphBuilder.hashCapacity(expectedVertices));
+    }
+
+    private void checkRep() {
+        boolean enabled = false;
+        assert enabled = true;
+        if (!enabled) return; // the loop below is O(size) even with assertions off
+        for (NavigableSet<Neighbor> neighbors : ranked.values()) {
+            assert !neighbors.isEmpty() : "empty rankings must be dropped";
+        }
+    }
+
+    /**
+     * Record that the edge between vertex and neighbor changed weight.
+     *
+     * @param vertex vertex whose ranking changes
+     * @param neighbor label at the other end of the edge
+     * @param oldWeight previous weight of the edge, or zero if it did not exist
+     * @param newWeight new weight of the edge, or zero if it was removed
+     */
+    public void update(String vertex, String neighbor, int oldWeight, int newWeight) {
+        if (oldWeight == newWeight) {
+            return;
+        }
+        NavigableSet<Neighbor> neighbors = ranked.get(vertex);
+        if (oldWeight > 0 && neighbors != null) {
+            neighbors.remove(new Neighbor(neighbor, oldWeight));
+        }
+        if (newWeight > 0) {
+            if (neighbors == null) {
+                neighbors = new TreeSet<>();
+                ranked.put(vertex, neighbors);
+            }
+            neighbors.add(new Neighbor(neighbor, newWeight));
+        } else if (neighbors != null && neighbors.isEmpty()) {
+            ranked.remove(vertex);
+        }
+        checkRep();
+    }
+
+    /**
+     * Drop every neighbor of a vertex.
+     *
+     * @param vertex vertex to forget
+     * @return the neighbors the vertex had, heaviest first
+     */
+    public Iterable<Neighbor> removeAll(String vertex) {
+        NavigableSet<Neighbor> neighbors = ranked.remove(vertex);
+        return neighbors == null ? Collections.<Neighbor>emptySet() : neighbors;
+    }
+
+    /**
+     * Get the k heaviest neighbors of a vertex.
+     *
+     * @param vertex a label
+     * @param k maximum number of neighbors to return, nonnegative
+     * @return a map from neighbor label to edge weight, with at most k entries,
+     *         iterating in order of descending weight and then ascending label
+     */
+    public Map<String, Integer> top(String vertex, int k) {
+        if (k < 0) throw new IllegalArgumentException("k must be nonnegative");
+        Map<String, Integer> top = new LinkedHashMap<>();
+        NavigableSet<Neighbor> neighbors = ranked.get(vertex);
+        if (neighbors == null) {
+            return top;
+        }
+        Iterator<Neighbor> it = neighbors.iterator();
+        while (top.size() < k && it.hasNext()) {
+            Neighbor n = it.next();
+            top.put(n.label, n.weight);
+        }
+        return top;
+    }
+
+    /**
+     * @param vertex a label
+     * @return a fresh map from each neighbor of vertex to its edge weight
+     */
+    public Map<String, Integer> weights(String vertex) {
+        Map<String, Integer> weights = new HashMap<>();
+        NavigableSet<Neighbor> neighbors = ranked.get(vertex);
+        if (neighbors != null) {
+            for (Neighbor n : neighbors) {
+                weights.put(n.label, n.weight);
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * @param vertex a label
+     * @return read-only iterator over the neighbors of vertex, heaviest first
+     */
+    public Iterator<Neighbor> neighbors(String vertex) {
+        NavigableSet<Neighbor> neighbors = ranked.get(vertex);
+        return neighbors == null
+                ? Collections.<Neighbor>emptyIterator()
+                : Collections.unmodifiableSet(neighbors).iterator();
+    }
+
+    /**
+     * @param vertex a label
+     * @return number of neighbors of vertex
+     */
+    public int degree(String vertex) {
+        NavigableSet<Neighbor> neighbors = ranked.get(vertex);
+        return neighbors == null ? 0 : neighbors.size();
+    }
+
+    /**
+     * @return estimated bytes of heap retained by this ranking, excluding labels
+     */
+    public long estimatedHeapBytes() {
+        long bytes = HeapSize.align(HeapSize.HEADER + HeapSize.REFERENCE) + HeapSize.hashMap(ranked.size());
+        for (NavigableSet<Neighbor> neighbors : ranked.values()) {
+            bytes += HeapSize.TREE_SET + neighbors.size() * (HeapSize.TREE_ENTRY + Neighbor.HEAP_BYTES);
+        }
+        return bytes;
+    }
+
+    /**
+     * Immutable (label, weight) pair ordered by descending weight, then label.
+     */
+    static final class Neighbor implements Comparable<Neighbor> {
+        static final long HEAP_BYTES = HeapSize.align(HeapSize.HEADER + HeapSize.REFERENCE + 4);
+
+        final String label;
+        final int weight;
+
+        Neighbor(String label, int weight) {
+            this.label = label;
+            this.weight = weight;
+        }
+
+        @Override
+        public int compareTo(Neighbor that) {
+            int byWeight = Integer.compare(that.weight, this.weight);
+            return byWeight != 0 ? byWeight : this.label.compareTo(that.label);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Neighbor)) return false;
+            Neighbor that = (Neighbor) obj;
+            return weight == that.weight && label.equals(that.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * label.hashCode() + weight;
+        }
+    }
+}
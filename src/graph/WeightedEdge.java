@@ -0,0 +1,67 @@
+package graph;
+
+/**
+ * Immutable weighted directed edge of a graph, as reported by edge streams.
+ * 
+ * @param <L> type of vertex labels, must be immutable
+ */
+public final class WeightedEdge<L> {
+    
+    private final L source;
+    private final L target;
+    private final int weight;
+    
+    // Abstraction function:
+    //   AF(source, target, weight) = the edge from source to target of weight weight
+    // Representation invariant:
+    //   source != null, target != null, weight > 0
+    // Safety from rep exposure:
+    //   all fields are private, final and immutable
+    
+    /**
+     * Make an edge.
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param weight positive weight of the edge
+     */
+    public WeightedEdge(L source, L target, int weight) {
+        if (source == null || target == null) throw new IllegalArgumentException("Vertices cannot be null");
+        if (weight <= 0) throw new IllegalArgumentException("Edge weight must be positive");
+        this.source = source;
+        this.target = target;
+        this.weight = weight;
+    }
+    
+    /** @return label of the source vertex */
+    public L getSource() {
+        return source;
+    }
+    
+    /** @return label of the target vertex */
+    public L getTarget() {
+        return target;
+    }
+    
+    /** @return positive weight of the edge */
+    public int getWeight() {
+        return weight;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof WeightedEdge)) return false;
+        WeightedEdge<?> that = (WeightedEdge<?>) obj;
+        return source.equals(that.source) && target.equals(that.target) && weight == that.weight;
+    }
+    
+    @Override
+    public int hashCode() {
+        return (31 * source.hashCode() + target.hashCode()) * 31 + weight;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("WeightedEdge(%s -> %s, weight=%d)", source, target, weight);
+    }
+}
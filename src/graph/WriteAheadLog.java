@@ -0,0 +1,471 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A write-ahead log that makes a Graph&lt;String&gt; durable.
+ *
+ * <p>Register the log as a listener of a graph (see
+ * {@link ConcreteEdgesGraph#addListener} and
+ * {@link ConcreteVerticesGraph#addListener}) and every change is appended to
+ * a log file in the log's directory. snapshot() writes the whole graph to a
+ * snapshot file and truncates the log. After a crash, recover() rebuilds the
+ * graph from the latest snapshot plus the log records written after it.
+ *
+ * <p>Records are buffered and forced to disk according to a SyncPolicy.
+ * Under GROUP_COMMIT one fsync covers many records: it happens once
+ * groupSize records are pending, or once the oldest pending record is
+ * groupDelayMillis old, whichever comes first. A crash can lose the records
+ * of the group not yet forced, but never corrupts earlier ones; a torn record
+ * at the end of the log is detected by its checksum and dropped.
+ *
+ * <p>snapshotPeriodically() makes the log take snapshots by itself, once a
+ * number of records or an interval has passed since the last one, so the log
+ * and the time recover() takes stay bounded. Those snapshots are taken on
+ * the thread that changes the graph, when it appends a record.
+ */
+public class WriteAheadLog implements GraphListener<String>, Closeable {
+
+    /**
+     * When appended records are forced to stable storage.
+     */
+    public enum SyncPolicy {
+        /** fsync after every record. */
+        EVERY_RECORD,
+        /** fsync once per group of records. */
+        GROUP_COMMIT,
+        /** hand records to the OS once per group; never fsync. */
+        NEVER
+    }
+
+    static final String LOG_FILE = "wal.log";
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final int SNAPSHOT_MAGIC = 0x47534E50;
+
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private static final byte VERTEX_ADDED = 1;
+    private static final byte EDGE_SET = 2;
+    private static final byte VERTEX_REMOVED = 3;
+
+    private final File directory;
+    private final SyncPolicy policy;
+    private final int groupSize;
+    private final ScheduledExecutorService syncer;
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    private long sequence;
+    private int pending = 0;
+    private boolean closed = false;
+    private Graph<String> snapshotGraph = null;
+    private long snapshotEveryRecords = 0;
+    private long snapshotEveryNanos = 0;
+    private long snapshotSequence;
+    private long snapshotNanos = System.nanoTime();
+
+    // Abstraction function:
+    //   AF(directory, sequence, ...) = the durable history of a graph: the
+    //     snapshot in directory followed by the records numbered after it in
+    //     the log, the last of which is numbered sequence
+    // Representation invariant:
+    //   groupSize > 0
+    //   0 <= pending, and pending == 0 if policy == EVERY_RECORD
+    //   syncer != null iff policy != EVERY_RECORD
+    //   snapshotSequence <= sequence; snapshotEveryRecords and
+    //     snapshotEveryNanos are 0 (off) or positive, and both are 0 if
+    //     snapshotGraph is null
+    // Safety from rep exposure:
+    //   all fields are private and never returned
+    // Thread safety:
+    //   every method that touches the log is synchronized on this, so
+    //   appends from the graph's thread and timed syncs never interleave
+
+    /**
+     * Open the log in a directory with group commit every 128 records or 10
+     * milliseconds.
+     *
+     * @param directory directory holding the log and snapshot, created if
+     *        missing
+     * @throws IOException if the directory or log cannot be opened
+     */
+    public WriteAheadLog(File directory) throws IOException {
+        this(directory, SyncPolicy.GROUP_COMMIT, 128, 10);
+    }
+
+    /**
+     * Open the log in a directory, continuing any log already there.
+     *
+     * @param directory directory holding the log and snapshot, created if
+     *        missing
+     * @param policy when records are forced to disk
+     * @param groupSize largest number of records per group, positive
+     * @param groupDelayMillis longest time a record waits for its group to be
+     *        forced, positive
+     * @throws IOException if the directory or log cannot be opened
+     */
+    public WriteAheadLog(File directory, SyncPolicy policy, int groupSize, long groupDelayMillis)
+            throws IOException {
+        if (groupSize <= 0) throw new IllegalArgumentException("groupSize must be positive");
+        if (groupDelayMillis <= 0) throw new IllegalArgumentException("groupDelayMillis must be positive");
+        Files.createDirectories(directory.toPath());
+        this.directory = directory;
+        this.policy = policy;
+        this.groupSize = groupSize;
+        File log = new File(directory, LOG_FILE);
+        long[] scan = scanLog(log);
+        this.snapshotSequence = readSnapshot(directory, null);
+        this.sequence = Math.max(scan[1], snapshotSequence);
+        this.file = new FileOutputStream(log, true);
+        this.file.getChannel().truncate(scan[0]);
+        this.out = new DataOutputStream(new BufferedOutputStream(file));
+        if (policy == SyncPolicy.EVERY_RECORD) {
+            this.syncer = null;
+        } else {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "wal-sync");
+                t.setDaemon(true);
+                return t;
+            });
+            this.syncer.scheduleWithFixedDelay(this::timedSync, groupDelayMillis, groupDelayMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert groupSize > 0;
+        assert pending >= 0 && (policy != SyncPolicy.EVERY_RECORD || pending == 0);
+        assert (syncer != null) == (policy != SyncPolicy.EVERY_RECORD);
+        assert snapshotSequence <= sequence;
+        assert snapshotEveryRecords >= 0 && snapshotEveryNanos >= 0;
+        assert snapshotGraph != null || (snapshotEveryRecords == 0 && snapshotEveryNanos == 0);
+    }
+
+    /**
+     * @return the length of the intact prefix of a log file, and the sequence
+     *         number of its last intact record (0 if it has none)
+     */
+    private static long[] scanLog(File log) throws IOException {
+        long valid = 0;
+        long last = 0;
+        if (log.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(log)))) {
+                for (byte[] payload = readRecord(in); payload != null; payload = readRecord(in)) {
+                    valid += 8 + payload.length;
+                    last = new DataInputStream(new ByteArrayInputStream(payload)).readLong();
+                }
+            }
+        }
+        return new long[] { valid, last };
+    }
+
+    /**
+     * Take a snapshot of a graph automatically, once everyRecords records
+     * have been appended since the last snapshot, or on the first append
+     * at least everyMillis after it, whichever comes first. The interval is
+     * checked when a record is appended rather than by the sync timer,
+     * because a snapshot reads the graph and must run on the thread that
+     * changes it.
+     *
+     * @param graph graph whose changes this log records, or null to stop
+     *        taking snapshots automatically
+     * @param everyRecords records between snapshots, or 0 for no record trigger;
+     *        nonnegative
+     * @param everyMillis milliseconds between snapshots, or 0 for no time
+     *        trigger; nonnegative
+     */
+    public synchronized void snapshotPeriodically(Graph<String> graph, long everyRecords, long everyMillis) {
+        if (everyRecords < 0 || everyMillis < 0) throw new IllegalArgumentException("intervals must be nonnegative");
+        this.snapshotGraph = graph;
+        this.snapshotEveryRecords = graph == null ? 0 : everyRecords;
+        this.snapshotEveryNanos = graph == null ? 0 : TimeUnit.MILLISECONDS.toNanos(everyMillis);
+        checkRep();
+    }
+
+    private boolean snapshotDue() {
+        return snapshotEveryRecords > 0 && sequence - snapshotSequence >= snapshotEveryRecords
+                || snapshotEveryNanos > 0 && System.nanoTime() - snapshotNanos >= snapshotEveryNanos;
+    }
+
+    /**
+     * @return sequence number of the last record appended to this log
+     */
+    public synchronized long sequence() {
+        return sequence;
+    }
+
+    @Override
+    public synchronized void vertexAdded(String vertex) {
+        append(VERTEX_ADDED, vertex, null, 0);
+    }
+
+    @Override
+    public synchronized void edgeSet(String source, String target, int oldWeight, int newWeight) {
+        append(EDGE_SET, source, target, newWeight);
+    }
+
+    @Override
+    public synchronized void vertexRemoved(String vertex) {
+        append(VERTEX_REMOVED, vertex, null, 0);
+    }
+
+    private void append(byte type, String vertex, String other, int weight) {
+        if (closed) throw new IllegalStateException("log is closed");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(bytes);
+            payload.writeLong(sequence + 1);
+            payload.writeByte(type);
+            payload.writeUTF(vertex);
+            if (type == EDGE_SET) {
+                payload.writeUTF(other);
+                payload.writeInt(weight);
+            }
+            writeRecord(out, bytes.toByteArray());
+            sequence++;
+            pending++;
+            if (snapshotGraph != null && snapshotDue()) {
+                // listeners run after the change, and replaying a record the
+                // snapshot already holds is harmless, so this snapshot is
+                // consistent even in the middle of a set() that adds vertices
+                snapshot(snapshotGraph);
+            } else if (policy == SyncPolicy.EVERY_RECORD || pending >= groupSize) {
+                commit();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        checkRep();
+    }
+
+    /**
+     * Force every appended record to the log file, and to disk unless the
+     * policy is NEVER.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        if (!closed) {
+            commit();
+        }
+    }
+
+    private void commit() throws IOException {
+        out.flush();
+        if (policy != SyncPolicy.NEVER) {
+            file.getFD().sync();
+        }
+        pending = 0;
+    }
+
+    private synchronized void timedSync() {
+        if (pending > 0 && !closed) {
+            try {
+                commit();
+            } catch (IOException e) {
+                // the next append or sync() reports the failure to the caller
+            }
+        }
+    }
+
+    /**
+     * Write the whole graph to a new snapshot and truncate the log.
+     * The graph must not change while the snapshot is taken, and must be the
+     * graph whose changes this log has recorded.
+     *
+     * @param graph graph to save
+     * @throws IOException if the snapshot or log cannot be written
+     */
+    public synchronized void snapshot(Graph<String> graph) throws IOException {
+        if (closed) throw new IllegalStateException("log is closed");
+        commit();
+        File tmp = new File(directory, SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream snapshotFile = new FileOutputStream(tmp)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(snapshotFile), new CRC32());
+            DataOutputStream snapshot = new DataOutputStream(checked);
+            snapshot.writeInt(SNAPSHOT_MAGIC);
+            snapshot.writeLong(sequence);
+            for (String vertex : graph.vertices()) {
+                snapshot.writeBoolean(true);
+                snapshot.writeUTF(vertex);
+                for (Map.Entry<String, Integer> edge : graph.targets(vertex).entrySet()) {
+                    snapshot.writeBoolean(true);
+                    snapshot.writeUTF(edge.getKey());
+                    snapshot.writeInt(edge.getValue());
+                }
+                snapshot.writeBoolean(false);
+            }
+            snapshot.writeBoolean(false);
+            snapshot.writeInt((int) checked.getChecksum().getValue());
+            snapshot.flush();
+            snapshotFile.getFD().sync();
+        }
+        Files.move(tmp.toPath(), new File(directory, SNAPSHOT_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // the rename lives in the directory, so it is only durable once the
+        // directory is forced; truncating first could lose both the new
+        // snapshot and the records it replaced
+        try (FileChannel dir = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+        // records up to sequence are now in the snapshot; a crash before the
+        // truncation below leaves them in the log, and recover() skips them
+        file.getChannel().truncate(0);
+        file.getFD().sync();
+        snapshotSequence = sequence;
+        snapshotNanos = System.nanoTime();
+        checkRep();
+    }
+
+    /**
+     * Force any pending records to disk and close the log.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        commit();
+        closed = true;
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        out.close();
+    }
+
+    /**
+     * Rebuild a graph from the latest snapshot and log in a directory.
+     *
+     * @param directory directory holding a log and snapshot; if it has
+     *        neither, the graph is left empty
+     * @param graph empty graph to fill
+     * @param <G> type of the graph
+     * @return graph, holding the state recorded in directory
+     * @throws IOException if the snapshot is corrupt or cannot be read
+     */
+    public static <G extends Graph<String>> G recover(File directory, G graph) throws IOException {
+        long snapshotSequence = readSnapshot(directory, graph);
+        File log = new File(directory, LOG_FILE);
+        if (log.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(log)))) {
+                for (byte[] bytes = readRecord(in); bytes != null; bytes = readRecord(in)) {
+                    DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes));
+                    if (payload.readLong() <= snapshotSequence) {
+                        continue;
+                    }
+                    byte type = payload.readByte();
+                    String vertex = payload.readUTF();
+                    switch (type) {
+                    case VERTEX_ADDED:
+                        graph.add(vertex);
+                        break;
+                    case EDGE_SET:
+                        String target = payload.readUTF();
+                        graph.set(vertex, target, payload.readInt());
+                        break;
+                    case VERTEX_REMOVED:
+                        graph.remove(vertex);
+                        break;
+                    default:
+                        throw new IOException("unknown record type " + type + " in " + log);
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Read the snapshot in a directory.
+     *
+     * @param directory directory that may hold a snapshot
+     * @param graph graph to fill with the snapshot's contents, or null to read
+     *        only its sequence number
+     * @return sequence number of the last record the snapshot covers, or 0 if
+     *         there is no snapshot
+     * @throws IOException if the snapshot is corrupt or cannot be read
+     */
+    private static long readSnapshot(File directory, Graph<String> graph) throws IOException {
+        File snapshotFile = new File(directory, SNAPSHOT_FILE);
+        if (!snapshotFile.exists()) {
+            return 0;
+        }
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(snapshotFile)), new CRC32())) {
+            DataInputStream snapshot = new DataInputStream(checked);
+            if (snapshot.readInt() != SNAPSHOT_MAGIC) throw new IOException("not a snapshot: " + snapshotFile);
+            long snapshotSequence = snapshot.readLong();
+            if (graph == null) {
+                return snapshotSequence;
+            }
+            while (snapshot.readBoolean()) {
+                String source = snapshot.readUTF();
+                graph.add(source);
+                while (snapshot.readBoolean()) {
+                    String target = snapshot.readUTF();
+                    graph.set(source, target, snapshot.readInt());
+                }
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (snapshot.readInt() != expected) throw new IOException("corrupt snapshot " + snapshotFile);
+            return snapshotSequence;
+        }
+    }
+
+    // Record framing: int length, int CRC32 of payload, payload bytes.
+
+    private static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+    }
+
+    /**
+     * @return the next intact record's payload, or null at the end of the
+     *         stream or at a torn or corrupt record
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 0 || length > MAX_RECORD_BYTES) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package poet;
+
+/**
+ * A count-min sketch of a multiset of long keys: depth rows of width int
+ * counters, where each key increments one counter per row, chosen by a
+ * different hash per row. The estimate of a key's count is the smallest of
+ * its counters.
+ *
+ * <p>Updates are conservative: only the counters equal to the current
+ * estimate are raised. An estimate is never below the true count, and with
+ * probability at least 1 - delta() it exceeds the true count by at most
+ * epsilon() times total().
+ */
+class CountMinSketch {
+
+    /** Rows used by forBudget(); failure probability e^-4, under 2%. */
+    static final int DEFAULT_DEPTH = 4;
+
+    private static final int MIN_WIDTH = 16;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final int depth;
+    private final int widthBits;
+    private final int[] counters;
+    private long total = 0;
+
+    // Abstraction function:
+    //   AF(depth, widthBits, counters, total) = a summary of a multiset of
+    //     total keys, where row r holds counters[r * 2^widthBits ..
+    //     (r + 1) * 2^widthBits) and each key counts toward
+    //     counters[r * 2^widthBits + index(key, r)] in every row r
+    // Representation invariant:
+    //   depth >= 1, widthBits >= log2(MIN_WIDTH)
+    //   counters.length == depth << widthBits
+    //   0 <= counters[i] <= total
+    // Safety from rep exposure:
+    //   all fields are private and never returned
+
+    /**
+     * Make an empty sketch.
+     *
+     * @param width counters per row, a power of two, at least 16
+     * @param depth number of rows, positive
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width < MIN_WIDTH || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width must be a power of two, at least " + MIN_WIDTH);
+        }
+        if (depth <= 0) throw new IllegalArgumentException("depth must be positive");
+        if ((long) width * depth > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("sketch too large");
+        this.depth = depth;
+        this.widthBits = Integer.numberOfTrailingZeros(width);
+        this.counters = new int[width * depth];
+        checkRep();
+    }
+
+    /**
+     * Make the widest sketch of DEFAULT_DEPTH rows whose counters fit in a
+     * budget.
+     *
+     * @param bytes bytes the counters may take, at least enough for
+     *        DEFAULT_DEPTH rows of 16 counters
+     * @return an empty sketch
+     */
+    public static CountMinSketch forBudget(long bytes) {
+        long perRow = bytes / (4L * DEFAULT_DEPTH);
+        if (perRow < MIN_WIDTH) throw new IllegalArgumentException("budget too small for a sketch");
+        int width = Integer.highestOneBit((int) Math.min(perRow, (Integer.MAX_VALUE - 8) / DEFAULT_DEPTH));
+        return new CountMinSketch(width, DEFAULT_DEPTH);
+    }
+
+    private void checkRep() {
+        assert depth >= 1 && (1 << widthBits) >= MIN_WIDTH;
+        assert counters.length == depth << widthBits;
+    }
+
+    /**
+     * Count one more occurrence of a key.
+     *
+     * @param key any key
+     * @return the estimate of key's count after this occurrence
+     */
+    public int add(long key) {
+        long hash = mix(key);
+        int estimate = Integer.MAX_VALUE;
+        for (int r = 0; r < depth; r++) {
+            estimate = Math.min(estimate, counters[slot(hash, r)]);
+        }
+        if (estimate < Integer.MAX_VALUE) {
+            estimate++;
+        }
+        for (int r = 0; r < depth; r++) {
+            int slot = slot(hash, r);
+            if (counters[slot] < estimate) {
+                counters[slot] = estimate;
+            }
+        }
+        total++;
+        return estimate;
+    }
+
+    /**
+     * @param key any key
+     * @return an estimate of how many times key was added, never below the
+     *         true count
+     */
+    public int estimate(long key) {
+        long hash = mix(key);
+        int estimate = Integer.MAX_VALUE;
+        for (int r = 0; r < depth; r++) {
+            estimate = Math.min(estimate, counters[slot(hash, r)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return number of keys added, counting repeats
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @return counters per row
+     */
+    public int width() {
+        return 1 << widthBits;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * @return relative error: e / width()
+     */
+    public double epsilon() {
+        return Math.E / width();
+    }
+
+    /**
+     * @return probability that an estimate exceeds its error bound: e^-depth()
+     */
+    public double delta() {
+        return Math.exp(-depth);
+    }
+
+    /**
+     * @return most an estimate exceeds the true count, with probability at
+     *         least 1 - delta(): epsilon() times total(), rounded up
+     */
+    public long errorBound() {
+        return (long) Math.ceil(epsilon() * total);
+    }
+
+    /**
+     * @return estimated bytes of heap retained by this sketch
+     */
+    public long estimatedHeapBytes() {
+        return LongIntHashMap.align(12 + 4 + 4 + 4 + 8) + LongIntHashMap.align(16 + 4L * counters.length);
+    }
+
+    private int slot(long hash, int row) {
+        // multiply-shift with an odd multiplier per row
+        long h = hash * (GOLDEN * (2 * row + 1) | 1);
+        return (row << widthBits) + (int) (h >>> (64 - widthBits));
+    }
+
+    private static long mix(long key) {
+        // murmur3 finalizer, so keys that differ in few bits spread apart
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
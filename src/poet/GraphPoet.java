@@ -1,23 +1,131 @@
 
 package poet;
 
-import graph.ConcreteEdgesGraph;
 import graph.Graph;
+import graph.GraphBuilder;
+import graph.GraphStats;
+import graph.SortedRunGraph;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * A graph-based poetry generator.
  */
 public class GraphPoet {
 
-    private final Graph<String> graph = new ConcreteEdgesGraph();
+    /** Average bytes per word of English text, including the separator. */
+    static final int BYTES_PER_WORD = 6;
+    /** Heaps' law vocabulary of a text of n words: about HEAPS_K * sqrt(n). */
+    static final int HEAPS_K = 40;
+    /** Chars read from a Reader at a time by poem(Reader, Writer). */
+    private static final int READ_BUFFER_CHARS = 8192;
+    /** First int of a file written by save(). */
+    private static final int MODEL_MAGIC = 0x47504F54;
+
+    private final Graph<String> graph;
+    private final NGramModel context;
+    private volatile PoemCache cache = null;
+
+    // Abstraction function:
+    //   AF(graph, context, cache) = a poet whose word affinities are the edge
+    //     weights of graph, and who, if context is not null, prefers bridges
+    //     that continue the preceding words of the poem according to context;
+    //     results may be memoized in cache
+    // Representation invariant:
+    //   every target of an edge in graph is a vertex of graph
+    //   context is null or has order >= 3
+    // Safety from rep exposure:
+    //   all fields are private and never returned
 
   
     public GraphPoet(File corpus) throws IOException {
+        this(corpus, 2);
+    }
+
+    /**
+     * Create a poet whose bridge choices depend on up to order - 1 preceding
+     * words. At order 2 this is the bigram poet of GraphPoet(File). At higher
+     * orders each candidate bridge b between word1 and word2 is scored, for
+     * k from order down to 2, by how often b followed the last k - 1 words of
+     * the poem so far and how often word2 followed the last k - 1 words up to
+     * b. The bridge with the highest score at the largest k where scores
+     * differ is chosen, so bigram counts only break ties.
+     *
+     * @param corpus text file from which to derive the poet's model
+     * @param order length of the longest word sequence the model counts, at least 2
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, int order) throws IOException {
+        if (order < 2) throw new IllegalArgumentException("order must be at least 2");
+        this.context = order == 2 ? null : new NGramModel(order);
+        this.graph = hints(corpus.length()).build();
+        train(corpus);
+    }
+
+    /**
+     * Create a bigram poet with an empty model, for training with train() or
+     * trainApproximate(). Its graph is built by the given builder, so the
+     * caller chooses the representation and its sizing.
+     *
+     * @param builder builder of the model graph
+     */
+    public GraphPoet(GraphBuilder builder) {
+        this(builder.build(), null);
+    }
+
+    private GraphPoet(Graph<String> graph, NGramModel context) {
+        this.graph = graph;
+        this.context = context;
+        checkRep();
+    }
+
+    /**
+     * Estimate the size of the word-affinity graph of a corpus from its size
+     * alone: about one word per BYTES_PER_WORD bytes, a vocabulary that grows
+     * with the square root of the word count, and about one distinct word
+     * pair per two words.
+     *
+     * @param corpusBytes length of the corpus in bytes, nonnegative
+     * @return a builder with the estimated vertex and edge counts
+     */
+    static GraphBuilder hints(long corpusBytes) {
+        long words = corpusBytes / BYTES_PER_WORD;
+        long vocabulary = Math.min(words, (long) (HEAPS_K * Math.sqrt(words)));
+        return new GraphBuilder()
+                .expectedVertices((int) Math.min(vocabulary, Integer.MAX_VALUE))
+                .expectedEdges(words / 2);
+    }
+
+    /**
+     * @return length of the longest word sequence this poet's model counts
+     */
+    public int order() {
+        return context == null ? 2 : context.order();
+    }
+
+    /**
+     * Add the word pairs of another corpus to this poet's model.
+     * Any result cache is invalidated.
+     *
+     * @param corpus text file from which to derive more word affinities
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public void train(File corpus) throws IOException {
         List<String> lines = Files.readAllLines(corpus.toPath());
         String text = String.join(" ", lines).toLowerCase();
 
@@ -28,49 +136,460 @@ public class GraphPoet {
             int weight = graph.targets(source).getOrDefault(target, 0) + 1;
             graph.set(source, target, weight);
         }
+        if (context != null) {
+            context.train(words);
+        }
+        compact(graph);
+        invalidateCache();
+        checkRep();
+    }
+
+    /**
+     * Add the frequent word pairs of a corpus to this poet's model, in memory
+     * bounded by a budget rather than by the number of distinct pairs. Pairs
+     * that are not yet edges are counted in a count-min sketch of at most
+     * sketchBytes bytes, and a pair becomes an edge of weight threshold once
+     * its estimated count reaches threshold. After that its weight is counted
+     * exactly, as train() does. The corpus is read a line at a time.
+     *
+     * <p>Pairs seen fewer than threshold times are dropped, and counts below
+     * the threshold do not carry over between calls. To keep the graph within
+     * budget too, make the poet with GraphPoet(GraphBuilder) sized for the
+     * pairs expected to reach the threshold. Words are split as in
+     * train(), except that a corpus starting with whitespace does not yield
+     * an empty first word. Any result cache is invalidated.
+     *
+     * @param corpus text file from which to derive more word affinities
+     * @param threshold estimated count a pair needs to become an edge, positive
+     * @param sketchBytes bytes the sketch's counters may take, at least 256
+     * @return the sketch's error bounds and what it let into the graph
+     * @throws IOException if the corpus file cannot be found or read
+     * @throws IllegalStateException if this poet's order is above 2, since
+     *         its sequence model counts exactly
+     */
+    public SketchReport trainApproximate(File corpus, int threshold, long sketchBytes) throws IOException {
+        if (threshold <= 0) throw new IllegalArgumentException("threshold must be positive");
+        if (context != null) throw new IllegalStateException("approximate training supports only order 2");
+        CountMinSketch sketch = CountMinSketch.forBudget(sketchBytes);
+        long pairs = 0;
+        int admitted = 0;
+        String previous = null;
+        try (BufferedReader reader = Files.newBufferedReader(corpus.toPath())) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                for (String word : line.toLowerCase().split("\\s+")) {
+                    if (word.isEmpty()) {
+                        continue;
+                    }
+                    if (previous != null) {
+                        pairs++;
+                        int weight = graph.targets(previous).getOrDefault(word, 0);
+                        if (weight > 0) {
+                            graph.set(previous, word, weight + 1);
+                        } else {
+                            if (sketch.add(pairKey(previous, word)) >= threshold) {
+                                // the pair occurred between 1 and threshold times so far;
+                                // threshold overstates it least when the sketch is crowded
+                                graph.set(previous, word, threshold);
+                                admitted++;
+                            }
+                        }
+                    }
+                    previous = word;
+                }
+            }
+        }
+        compact(graph);
+        invalidateCache();
+        checkRep();
+        return new SketchReport(pairs, admitted, threshold, sketch);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a word pair, over the characters of both words
+     * and the length of the first. Unlike combining the words' 32-bit
+     * String.hashCode()s, which collide for pairs like "0z" and "1[", two
+     * distinct pairs share a key with probability about 2^-64.
+     */
+    static long pairKey(String first, String second) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < first.length(); i++) {
+            hash = (hash ^ first.charAt(i)) * 0x100000001B3L;
+        }
+        // keeps "ab c" and "a bc" apart
+        hash = (hash ^ first.length()) * 0x100000001B3L;
+        for (int i = 0; i < second.length(); i++) {
+            hash = (hash ^ second.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Write this poet's model to a file, replacing its contents, so that
+     * load() can restore it without retraining.
+     *
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File file) throws IOException {
+        Set<String> vertices = graph.vertices();
+        long edges = 0;
+        for (String vertex : vertices) {
+            edges += graph.targets(vertex).size();
+        }
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MODEL_MAGIC);
+            out.writeInt(order());
+            out.writeInt(vertices.size());
+            out.writeLong(edges);
+            for (String vertex : vertices) {
+                Map<String, Integer> targets = graph.targets(vertex);
+                out.writeUTF(vertex);
+                out.writeInt(targets.size());
+                for (Map.Entry<String, Integer> edge : targets.entrySet()) {
+                    out.writeUTF(edge.getKey());
+                    out.writeInt(edge.getValue());
+                }
+            }
+            if (context != null) {
+                context.writeTo(out);
+            }
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+        }
+    }
+
+    /**
+     * Restore a poet from a file written by save(). Its graph is built for
+     * the saved vertex and edge counts.
+     *
+     * @param file file to read
+     * @return a poet that writes the same poems as the one saved
+     * @throws IOException if the file cannot be read or was not written by
+     *         save()
+     */
+    public static GraphPoet load(File file) throws IOException {
+        try (FileInputStream stream = new FileInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(stream), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MODEL_MAGIC) throw new IOException(file + " is not a saved GraphPoet model");
+            int order = in.readInt();
+            int vertices = in.readInt();
+            long edges = in.readLong();
+            if (order < 2 || vertices < 0 || edges < 0) throw new IOException("corrupt model header in " + file);
+            Graph<String> graph = new GraphBuilder().expectedVertices(vertices).expectedEdges(edges).build();
+            for (int v = 0; v < vertices; v++) {
+                String source = in.readUTF();
+                graph.add(source);
+                for (int t = in.readInt(); t > 0; t--) {
+                    String target = in.readUTF();
+                    int weight = in.readInt();
+                    if (weight <= 0) throw new IOException("corrupt edge weight in " + file);
+                    graph.set(source, target, weight);
+                }
+            }
+            NGramModel context = order == 2 ? null : NGramModel.readFrom(in);
+            int checksum = (int) checked.getChecksum().getValue();
+            if (in.readInt() != checksum || context != null && context.order() != order) {
+                throw new IOException("corrupt model in " + file);
+            }
+            compact(graph);
+            return new GraphPoet(graph, context);
+        }
+    }
+
+    /**
+     * Ready a model graph for serving after a burst of writes. A
+     * SortedRunGraph merges its memtable and runs into one run, so that
+     * lookups binary-search one array instead of every run; other graphs
+     * are left alone.
+     */
+    private static void compact(Graph<String> graph) {
+        if (graph instanceof SortedRunGraph) {
+            ((SortedRunGraph) graph).compact();
+        }
+    }
+
+    /**
+     * Drop word pairs seen fewer than minWeight times, and words left without
+     * any pairs. Any result cache is invalidated.
+     *
+     * @param minWeight smallest weight an edge must have to be kept
+     */
+    public void prune(int minWeight) {
+        for (String source : graph.vertices()) {
+            // targets() may be a live view, so collect before removing
+            List<String> light = new ArrayList<>();
+            for (Map.Entry<String, Integer> edge : graph.targets(source).entrySet()) {
+                if (edge.getValue() < minWeight) {
+                    light.add(edge.getKey());
+                }
+            }
+            for (String target : light) {
+                graph.set(source, target, 0);
+            }
+        }
+        for (String vertex : graph.vertices()) {
+            if (graph.targets(vertex).isEmpty() && graph.sources(vertex).isEmpty()) {
+                graph.remove(vertex);
+            }
+        }
+        if (context != null) {
+            context.prune(minWeight);
+        }
+        compact(graph);
+        invalidateCache();
         checkRep();
     }
 
+    /**
+     * Cache the results of poem() in the given cache, or stop caching.
+     * The cache is cleared, and is invalidated whenever the model changes.
+     *
+     * @param cache cache to use, or null to disable caching
+     */
+    public void setCache(PoemCache cache) {
+        this.cache = cache;
+        invalidateCache();
+    }
+
+    private void invalidateCache() {
+        PoemCache current = cache;
+        if (current != null) {
+            current.clear();
+        }
+    }
+
     public String poem(String input) {
         String[] words = input.split("\\s+");
+        PoemCache current = cache;
+        if (current == null) {
+            return poem(words);
+        }
+        // poem(words) depends only on the tokens, so inputs that differ only in
+        // whitespace share one entry
+        String key = String.join(" ", words);
+        // read before the model, so a poem computed from a model that changes
+        // meanwhile is not cached after invalidateCache() cleared the cache
+        long generation = current.generation();
+        String poem = current.get(key);
+        if (poem == null) {
+            poem = poem(words);
+            current.put(key, poem, generation);
+        }
+        return poem;
+    }
+
+    private String poem(String[] words) {
         StringBuilder poem = new StringBuilder();
+        Bridger bridger = new Bridger(poem);
+        try {
+            for (String word : words) {
+                bridger.accept(word);
+            }
+            bridger.finish();
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder does not throw", e);
+        }
+        return poem.toString();
+    }
 
-        for (int i = 0; i < words.length - 1; i++) {
-            String word1 = words[i].toLowerCase();
-            String word2 = words[i + 1].toLowerCase();
+    /**
+     * Write the poem of a text, as poem() would return it, reading the text
+     * and writing the poem incrementally. Memory use does not grow with the
+     * length of the text, only with the length of its longest word.
+     * The writer is flushed but not closed.
+     *
+     * @param input text to transform; read to its end but not closed
+     * @param output where to write the poem
+     * @throws IOException if reading input or writing output fails
+     */
+    public void poem(Reader input, Writer output) throws IOException {
+        Bridger bridger = new Bridger(output);
+        char[] buffer = new char[READ_BUFFER_CHARS];
+        StringBuilder word = new StringBuilder();
+        // String.split("\\s+") yields a leading empty word when the text
+        // starts with whitespace and has any word after it
+        boolean seenWord = false;
+        boolean leadingSpace = false;
+        for (int n = input.read(buffer); n >= 0; n = input.read(buffer)) {
+            for (int i = 0; i < n; i++) {
+                char c = buffer[i];
+                if (isSplitSpace(c)) {
+                    if (word.length() > 0) {
+                        bridger.accept(word.toString());
+                        word.setLength(0);
+                    } else if (!seenWord) {
+                        leadingSpace = true;
+                    }
+                } else {
+                    if (!seenWord && leadingSpace) {
+                        bridger.accept("");
+                    }
+                    seenWord = true;
+                    word.append(c);
+                }
+            }
+        }
+        if (word.length() > 0) {
+            bridger.accept(word.toString());
+        }
+        bridger.finish();
+        output.flush();
+    }
+
+    /**
+     * @return true iff c matches \s in a java.util.regex pattern
+     */
+    private static boolean isSplitSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Writes a poem one input word at a time. Each word is held back until
+     * the next arrives, since the bridge after it depends on both.
+     */
+    private final class Bridger {
+        private final Appendable out;
+        /** the word held back, or null before the first word */
+        private String previous = null;
+        // for order-n poets: the last order - 2 lowercased words of the poem
+        // so far, oldest first, then word1, bridge and word2; null where the
+        // poem is too short
+        private final String[] window = context == null ? null : new String[context.order() + 1];
+
+        Bridger(Appendable out) {
+            this.out = out;
+        }
 
+        void accept(String word) throws IOException {
+            if (previous != null) {
+                String bridge = bridge(previous.toLowerCase(), word.toLowerCase());
+                out.append(previous).append(' ');
+                if (bridge != null) {
+                    out.append(bridge).append(' ');
+                }
+            }
+            previous = word;
+        }
+
+        /** Write the last word. A poem of no words is empty. */
+        void finish() throws IOException {
+            if (previous != null) {
+                out.append(previous);
+            }
+            checkRep();
+        }
+
+        private String bridge(String word1, String word2) {
+            if (context != null) {
+                return contextBridge(word1, word2);
+            }
             String bridge = null;
             int maxWeight = 0;
 
             for (String candidate : graph.targets(word1).keySet()) {
                 if (graph.targets(candidate).containsKey(word2)) {
                     int weight = graph.targets(word1).get(candidate) + graph.targets(candidate).get(word2);
-                    if (weight > maxWeight) {
+                    // ties go to the alphabetically first bridge, so the poem
+                    // does not depend on the graph's iteration order
+                    if (weight > maxWeight || (weight == maxWeight && candidate.compareTo(bridge) < 0)) {
                         bridge = candidate;
                         maxWeight = weight;
                     }
                 }
             }
+            return bridge;
+        }
+
+        private String contextBridge(String word1, String word2) {
+            int order = context.order();
+            window[order - 2] = word1;
+            window[order] = word2;
+
+            String bridge = null;
+            int[] best = null;
+            int[] scores = new int[order - 1];
+            for (String candidate : graph.targets(word1).keySet()) {
+                if (graph.targets(candidate).containsKey(word2)) {
+                    window[order - 1] = candidate;
+                    for (int k = order; k >= 2; k--) {
+                        scores[order - k] = context.count(window, order - k, order)
+                                + context.count(window, order + 1 - k, order + 1);
+                    }
+                    int cmp = best == null ? 1 : compare(scores, best);
+                    if (cmp > 0 || (cmp == 0 && candidate.compareTo(bridge) < 0)) {
+                        bridge = candidate;
+                        best = scores.clone();
+                    }
+                }
+            }
 
-            poem.append(words[i]).append(" ");
+            shift(window, word1);
             if (bridge != null) {
-                poem.append(bridge).append(" ");
+                shift(window, bridge);
             }
+            return bridge;
         }
-        poem.append(words[words.length - 1]);
+    }
 
-        checkRep();
-        return poem.toString();
+    /** Lexicographic comparison of score vectors of equal length. */
+    private static int compare(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return 0;
+    }
+
+    /** Append word to the history at the front of window, dropping the oldest. */
+    private static void shift(String[] window, String word) {
+        int history = window.length - 3;
+        if (history > 0) {
+            System.arraycopy(window, 1, window, 0, history - 1);
+            window[history - 1] = word;
+        }
+    }
+
+    /**
+     * Generate poems for a batch of inputs, as if by calling poem() on each.
+     * Repeated inputs within the batch are only transformed once.
+     *
+     * @param inputs inputs to transform
+     * @return the poem for each input, in the same order
+     */
+    public List<String> poems(List<String> inputs) {
+        Map<String, String> done = new HashMap<>();
+        List<String> poems = new ArrayList<>(inputs.size());
+        for (String input : inputs) {
+            poems.add(done.computeIfAbsent(input, this::poem));
+        }
+        return poems;
+    }
+
+    /**
+     * Summarize this poet's word-affinity model, for capacity planning.
+     *
+     * @return statistics of the model graph
+     */
+    public GraphStats modelStats() {
+        return GraphStats.of(graph);
     }
 
     /**
      * Checks the representation invariant of the GraphPoet class.
      */
     private void checkRep() {
+        boolean enabled = false;
+        assert enabled = true;
+        if (!enabled) return; // the loop below is O(size) even with assertions off
         // Ensure all edges in the graph are valid.
-        for (String vertex : graph.vertices()) {
+        Set<String> vertices = graph.vertices();
+        for (String vertex : vertices) {
             for (String target : graph.targets(vertex).keySet()) {
-                assert graph.vertices().contains(target) : "Target vertex must exist in the graph.";
+                assert vertices.contains(target) : "Target vertex must exist in the graph.";
             }
         }
     }
@@ -0,0 +1,173 @@
+package poet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A mutable map from nonzero long keys to int values, stored in two parallel
+ * primitive arrays with open addressing and linear probing. No entry is ever
+ * removed, so lookups never meet tombstones.
+ */
+class LongIntHashMap {
+
+    /** Key marking an empty slot; not a legal key. */
+    static final long EMPTY = 0L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size = 0;
+
+    // Abstraction function:
+    //   AF(keys, values, size) = the map {keys[i] -> values[i] | keys[i] != EMPTY}
+    // Representation invariant:
+    //   keys.length == values.length, a power of two >= MIN_CAPACITY
+    //   size == number of non-EMPTY keys, and size <= 2/3 keys.length
+    //   no key occurs twice
+    //   each key is reachable by probing forward from its home slot without
+    //     crossing an EMPTY slot
+    // Safety from rep exposure:
+    //   the arrays are private and never returned
+
+    /**
+     * Make an empty map sized for about expectedSize entries.
+     *
+     * @param expectedSize number of entries expected, nonnegative
+     */
+    public LongIntHashMap(int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("expectedSize must be nonnegative");
+        int capacity = MIN_CAPACITY;
+        while (capacity / 3 * 2 < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert keys.length == values.length && Integer.bitCount(keys.length) == 1;
+        assert size <= keys.length / 3 * 2 : "table must be resized before it fills";
+    }
+
+    /**
+     * @param key a nonzero key
+     * @param absent value to return if key is not in the map
+     * @return the value of key, or absent
+     */
+    public int get(long key, int absent) {
+        int mask = keys.length - 1;
+        for (int i = home(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return absent;
+    }
+
+    /**
+     * Map key to value unless key is already mapped.
+     *
+     * @param key a nonzero key
+     * @param value value to store if key is absent
+     * @return the value key maps to after the call
+     */
+    public int putIfAbsent(long key, int value) {
+        if (key == EMPTY) throw new IllegalArgumentException("key must be nonzero");
+        int mask = keys.length - 1;
+        int i = home(key, mask);
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length / 3 * 2) {
+            resize(keys.length << 1);
+        }
+        checkRep();
+        return value;
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return estimated bytes of heap retained by this map
+     */
+    public long estimatedHeapBytes() {
+        // object with two references and an int, then the two arrays
+        return align(12 + 2 * 4 + 4) + align(16 + 8L * keys.length) + align(16 + 4L * values.length);
+    }
+
+    /**
+     * Write the entries of this map, in slot order.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                out.writeLong(keys[i]);
+                out.writeInt(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a map written by writeTo().
+     *
+     * @param in where to read
+     * @return a map with the entries read
+     * @throws IOException if reading fails or the data is not such a map
+     */
+    public static LongIntHashMap readFrom(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) throw new IOException("corrupt map size " + size);
+        LongIntHashMap map = new LongIntHashMap(size);
+        for (int i = 0; i < size; i++) {
+            long key = in.readLong();
+            int value = in.readInt();
+            if (key == EMPTY || map.putIfAbsent(key, value) != value) {
+                throw new IOException("corrupt map entry " + key);
+            }
+        }
+        return map;
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = home(oldKeys[j], mask);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int home(long key, int mask) {
+        // Fibonacci hashing spreads packed ids, whose low bits vary least
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -3,26 +3,174 @@
  */
 package poet;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Example program using GraphPoet.
- * 
+ * Command-line poetry generator.
+ *
+ * <p>With no arguments, prints an example poem. Otherwise trains a poet on
+ * one or more corpora, or loads a saved model, then writes one poem per input
+ * line to standard output, and a throughput report to standard error:
+ *
+ * <pre>
+ * usage: Main [options] [input ...]
+ *   -c, --corpus FILE   train on FILE; may be repeated
+ *   -m, --model FILE    load a model saved with --save instead of training
+ *   -s, --save FILE     save the model to FILE before transforming
+ *   -n, --order N       model order when training (default 2)
+ *   -t, --threads N     worker threads (default: available processors)
+ *   -b, --batch N       input lines per unit of work (default 256)
+ *   -q, --quiet         no report
+ *   input               file to transform line by line; - or none is stdin
+ * </pre>
+ *
  * <p>PS2 instructions: you are free to change this example class.
  */
 public class Main {
-    
+
+    /** Default input lines per unit of work. */
+    static final int DEFAULT_BATCH_LINES = 256;
+
+    private static final int OUTPUT_BUFFER_CHARS = 1 << 16;
+    private static final String USAGE = "usage: Main [-c corpus]... [-m model] [-s save] [-n order]"
+            + " [-t threads] [-b batch] [-q] [input ...]";
+
     /**
-     * Generate example poetry.
-     * 
-     * @param args unused
-     * @throws IOException if a poet corpus file cannot be found or read
+     * Generate poetry.
+     *
+     * @param args options and inputs, as in the class comment; none for an
+     *        example poem
+     * @throws IOException if a corpus, model or input cannot be read, or the
+     *         output cannot be written
      */
     public static void main(String[] args) throws IOException {
-        final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
-        final String input = "Test the system.";
-        System.out.println(input + "\n>>>\n" + nimoy.poem(input));
+        if (args.length == 0) {
+            final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+            final String input = "Test the system.";
+            System.out.println(input + "\n>>>\n" + nimoy.poem(input));
+            return;
+        }
+        int status = run(args, System.in, System.out, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Run the batch mode of main().
+     *
+     * @param args options and inputs, as in the class comment
+     * @param stdin input read for - or when no input is named
+     * @param stdout where the poems are written; flushed, not closed
+     * @param stderr where usage errors and the report are written
+     * @return exit status: 0 on success, 2 for bad arguments
+     * @throws IOException if a corpus, model or input cannot be read, or the
+     *         output cannot be written
+     */
+    static int run(String[] args, InputStream stdin, OutputStream stdout, PrintStream stderr) throws IOException {
+        List<File> corpora = new ArrayList<>();
+        List<String> inputs = new ArrayList<>();
+        File model = null;
+        File save = null;
+        int order = 2;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batch = DEFAULT_BATCH_LINES;
+        boolean quiet = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                case "-c": case "--corpus":  corpora.add(new File(value(args, ++i))); break;
+                case "-m": case "--model":   model = new File(value(args, ++i)); break;
+                case "-s": case "--save":    save = new File(value(args, ++i)); break;
+                case "-n": case "--order":   order = positive(args, ++i); break;
+                case "-t": case "--threads": threads = positive(args, ++i); break;
+                case "-b": case "--batch":   batch = positive(args, ++i); break;
+                case "-q": case "--quiet":   quiet = true; break;
+                default:
+                    if (args[i].startsWith("-") && !args[i].equals("-")) {
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                    }
+                    inputs.add(args[i]);
+                }
+            }
+            if ((model == null) == corpora.isEmpty()) {
+                throw new IllegalArgumentException("give either --model or at least one --corpus");
+            }
+            if (model != null && order != 2) {
+                throw new IllegalArgumentException("--order applies only when training");
+            }
+        } catch (IllegalArgumentException e) {
+            stderr.println(e.getMessage());
+            stderr.println(USAGE);
+            return 2;
+        }
+        if (inputs.isEmpty()) {
+            inputs.add("-");
+        }
+
+        long start = System.nanoTime();
+        GraphPoet poet;
+        if (model != null) {
+            poet = GraphPoet.load(model);
+        } else {
+            poet = new GraphPoet(corpora.get(0), order);
+            for (File corpus : corpora.subList(1, corpora.size())) {
+                poet.train(corpus);
+            }
+        }
+        if (save != null) {
+            poet.save(save);
+        }
+        long modelNanos = System.nanoTime() - start;
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8), OUTPUT_BUFFER_CHARS);
+        PoemPipeline pipeline = new PoemPipeline(poet, threads, batch, output);
+        for (String input : inputs) {
+            if (input.equals("-")) {
+                pipeline.transform(new InputStreamReader(stdin, StandardCharsets.UTF_8));
+            } else {
+                try (Reader reader = new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8)) {
+                    pipeline.transform(reader);
+                }
+            }
+        }
+        PoemPipeline.Report report = pipeline.finish();
+        if (!quiet) {
+            stderr.printf("model %s in %.3f s; %d workers%n",
+                    model != null ? "loaded" : "trained", modelNanos / 1e9, threads);
+            stderr.println(report);
+        }
+        return 0;
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        return args[i];
+    }
+
+    private static int positive(String[] args, int i) {
+        String value = value(args, i);
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(args[i - 1] + " needs a positive integer, not " + value);
     }
-    
 }
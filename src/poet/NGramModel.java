@@ -0,0 +1,215 @@
+package poet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts of the word sequences of length 1 to order in a corpus, kept as a
+ * prefix trie. Each word gets an int id and each trie node (a context) an
+ * int id; the edge from a context to its extension by a word is one entry of
+ * a primitive hash table keyed by the two ids packed into a long. So a
+ * context costs one table slot and one int count, and extending a context by
+ * a word is one O(1) probe.
+ */
+class NGramModel {
+
+    /** Id of the root context, the empty sequence. */
+    private static final int ROOT = 0;
+    private static final int ABSENT = -1;
+
+    private final int order;
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final LongIntHashMap children;
+    private int[] counts = new int[16];
+    private int contexts = 1;
+
+    // Abstraction function:
+    //   AF(order, wordIds, children, counts, contexts) = a count for every word
+    //     sequence s of length 1..order, which is counts[c] where c is reached
+    //     from ROOT by following children[pack(c, wordIds[w])] for each w in s,
+    //     or zero if some step is missing
+    // Representation invariant:
+    //   order >= 2
+    //   word ids are 1..wordIds.size(); context ids are 0..contexts-1
+    //   every value in children is a distinct context id other than ROOT,
+    //     and children.size() == contexts - 1
+    //   counts.length >= contexts, and counts[c] >= 0
+    // Safety from rep exposure:
+    //   all fields are private; no method returns a mutable part of the rep
+
+    /**
+     * Make an empty model.
+     *
+     * @param order length of the longest sequence counted, at least 2
+     */
+    public NGramModel(int order) {
+        this(order, new LongIntHashMap(0));
+        checkRep();
+    }
+
+    private NGramModel(int order, LongIntHashMap children) {
+        if (order < 2) throw new IllegalArgumentException("order must be at least 2");
+        this.order = order;
+        this.children = children;
+    }
+
+    private void checkRep() {
+        assert order >= 2;
+        assert children.size() == contexts - 1 : "every context but the root has one parent entry";
+        assert counts.length >= contexts;
+    }
+
+    /**
+     * @return length of the longest sequence counted
+     */
+    public int order() {
+        return order;
+    }
+
+    /**
+     * Count every sequence of 1..order consecutive words in a text.
+     *
+     * @param words the words of the text, in order; none null
+     */
+    public void train(String[] words) {
+        for (int i = 0; i < words.length; i++) {
+            int context = ROOT;
+            for (int j = i; j < words.length && j < i + order; j++) {
+                context = extend(context, wordId(words[j]));
+                counts[context]++;
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * Get how many times a sequence occurred in the training text.
+     *
+     * @param words array holding the sequence
+     * @param from index of the first word of the sequence
+     * @param to index after the last word; to - from must be in 1..order
+     * @return the count of words[from..to), or zero if it never occurred or
+     *         if any of those words is null
+     */
+    public int count(String[] words, int from, int to) {
+        if (to - from < 1 || to - from > order) {
+            throw new IllegalArgumentException("sequence length must be in 1.." + order);
+        }
+        int context = ROOT;
+        for (int i = from; i < to && context != ABSENT; i++) {
+            Integer word = words[i] == null ? null : wordIds.get(words[i]);
+            context = word == null ? ABSENT : children.get(pack(context, word), ABSENT);
+        }
+        return context == ABSENT ? 0 : counts[context];
+    }
+
+    /**
+     * Forget the sequences that occurred fewer than minCount times. Their
+     * contexts keep their table slots, with count zero.
+     *
+     * @param minCount smallest count a sequence must have to be kept
+     */
+    public void prune(int minCount) {
+        for (int c = 1; c < contexts; c++) {
+            if (counts[c] < minCount) {
+                counts[c] = 0;
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * @return number of distinct sequences held, including pruned ones whose
+     *         slots remain
+     */
+    public int contextCount() {
+        return contexts - 1;
+    }
+
+    /**
+     * @return estimated bytes of heap retained by the context trie, excluding
+     *         the word-id dictionary, which holds one entry per distinct word
+     */
+    public long estimatedHeapBytes() {
+        return children.estimatedHeapBytes() + LongIntHashMap.align(16 + 4L * counts.length);
+    }
+
+    /**
+     * Write this model: its order, its words in id order, its trie and its
+     * counts.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        String[] words = new String[wordIds.size() + 1];
+        for (Map.Entry<String, Integer> word : wordIds.entrySet()) {
+            words[word.getValue()] = word.getKey();
+        }
+        out.writeInt(order);
+        out.writeInt(wordIds.size());
+        for (int id = 1; id < words.length; id++) {
+            out.writeUTF(words[id]);
+        }
+        children.writeTo(out);
+        for (int c = 0; c < contexts; c++) {
+            out.writeInt(counts[c]);
+        }
+    }
+
+    /**
+     * Read a model written by writeTo().
+     *
+     * @param in where to read
+     * @return a model equal to the one written
+     * @throws IOException if reading fails or the data is not such a model
+     */
+    public static NGramModel readFrom(DataInput in) throws IOException {
+        int order = in.readInt();
+        int words = in.readInt();
+        if (order < 2 || words < 0) throw new IOException("corrupt model header");
+        Map<String, Integer> wordIds = new HashMap<>();
+        for (int id = 1; id <= words; id++) {
+            wordIds.put(in.readUTF(), id);
+        }
+        if (wordIds.size() != words) throw new IOException("corrupt model dictionary");
+        NGramModel model = new NGramModel(order, LongIntHashMap.readFrom(in));
+        model.wordIds.putAll(wordIds);
+        model.contexts = model.children.size() + 1;
+        model.counts = new int[Math.max(16, model.contexts)];
+        for (int c = 0; c < model.contexts; c++) {
+            model.counts[c] = in.readInt();
+        }
+        model.checkRep();
+        return model;
+    }
+
+    private int wordId(String word) {
+        Integer id = wordIds.get(word);
+        if (id == null) {
+            id = wordIds.size() + 1;
+            wordIds.put(word, id);
+        }
+        return id;
+    }
+
+    private int extend(int context, int word) {
+        int child = children.putIfAbsent(pack(context, word), contexts);
+        if (child == contexts) {
+            if (contexts == counts.length) {
+                counts = Arrays.copyOf(counts, contexts * 2);
+            }
+            contexts++;
+        }
+        return child;
+    }
+
+    private static long pack(int context, int word) {
+        // word ids start at 1, so no packed key is LongIntHashMap.EMPTY
+        return (long) context << 32 | word;
+    }
+}
@@ -0,0 +1,194 @@
+package poet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects concurrent poem requests into micro-batches for GraphPoet.poems().
+ * A batch is flushed when it reaches its maximum size or when its oldest
+ * request has waited for the maximum batch delay.
+ *
+ * <p>One flusher thread gathers the batches and hands each to a pool of
+ * worker threads, at most parallelism batches at a time. While every worker
+ * is busy the flusher waits, so requests keep queueing and the next batch
+ * grows toward its maximum size.
+ */
+class PoemBatcher implements AutoCloseable {
+
+    private final GraphPoet poet;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService workers;
+    private final Semaphore idleWorkers;
+    private final Thread flusher;
+    private volatile boolean closed = false;
+
+    // Abstraction function:
+    //   AF(poet, queue, ...) = a batching front end for poet whose pending
+    //     requests are the elements of queue, oldest first
+    // Representation invariant:
+    //   maxBatchSize > 0, maxDelayNanos >= 0
+    //   idleWorkers has at most as many permits as workers has threads, and
+    //     one fewer for each batch being transformed
+    // Safety from rep exposure:
+    //   all fields are private; callers only see the futures they are handed
+    // Thread safety:
+    //   submit() only touches the thread-safe queue, and re-checks closed
+    //   after adding so a request that races close() is still completed;
+    //   apart from that, only the flusher thread and close() take from it; only worker threads call poet, and poem
+    //   generation only reads poet's model, which must not be trained or
+    //   pruned while this batcher is open
+
+    /**
+     * Make a batcher that transforms one batch at a time, and start its
+     * flusher thread.
+     *
+     * @param poet poet that transforms each batch
+     * @param maxBatchSize largest number of inputs per batch, positive
+     * @param maxDelayMillis longest time a request waits for others to join its
+     *        batch, nonnegative
+     */
+    public PoemBatcher(GraphPoet poet, int maxBatchSize, long maxDelayMillis) {
+        this(poet, maxBatchSize, maxDelayMillis, 1);
+    }
+
+    /**
+     * Make a batcher and start its flusher and worker threads.
+     *
+     * @param poet poet that transforms each batch
+     * @param maxBatchSize largest number of inputs per batch, positive
+     * @param maxDelayMillis longest time a request waits for others to join its
+     *        batch, nonnegative
+     * @param parallelism largest number of batches transformed at once, positive
+     */
+    public PoemBatcher(GraphPoet poet, int maxBatchSize, long maxDelayMillis, int parallelism) {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize must be positive");
+        if (maxDelayMillis < 0) throw new IllegalArgumentException("maxDelayMillis must be nonnegative");
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive");
+        this.poet = poet;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread worker = new Thread(task, "poem-worker-" + workerCount.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+        this.idleWorkers = new Semaphore(parallelism);
+        this.flusher = new Thread(this::flushLoop, "poem-batcher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queue an input for the next batch.
+     *
+     * @param input input to transform
+     * @return a future completed with poet.poem(input)
+     */
+    public CompletableFuture<String> submit(String input) {
+        Request request = new Request(input);
+        if (closed) {
+            request.result.completeExceptionally(new IllegalStateException("batcher is closed"));
+            return request.result;
+        }
+        queue.add(request);
+        // close() may have drained the queue between the check and the add;
+        // if the request is still queued then, nobody else will complete it
+        if (closed && queue.remove(request)) {
+            request.result.completeExceptionally(new IllegalStateException("batcher is closed"));
+        }
+        return request.result;
+    }
+
+    private void flushLoop() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                idleWorkers.acquire();
+                List<Request> full = batch;
+                workers.execute(() -> {
+                    try {
+                        flush(full);
+                    } finally {
+                        idleWorkers.release();
+                    }
+                });
+                batch = new ArrayList<>(maxBatchSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Request request : batch) {
+            request.result.completeExceptionally(new IllegalStateException("batcher is closed"));
+        }
+    }
+
+    private void flush(List<Request> batch) {
+        List<String> inputs = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            inputs.add(request.input);
+        }
+        try {
+            List<String> poems = poet.poems(inputs);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(poems.get(i));
+            }
+        } catch (RuntimeException e) {
+            for (Request request : batch) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting requests, finish the queued ones, and stop the flusher
+     * and worker threads.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            flusher.join();
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Request late; (late = queue.poll()) != null; ) {
+            late.result.completeExceptionally(new IllegalStateException("batcher is closed"));
+        }
+    }
+
+    private static final class Request {
+        final String input;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        Request(String input) {
+            this.input = input;
+        }
+    }
+}
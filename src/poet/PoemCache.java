@@ -0,0 +1,259 @@
+package poet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded, thread-safe cache of poem results.
+ *
+ * <p>Entries are kept in least-recently-used order. Under the LRU policy a
+ * new entry always displaces the least recently used one. Under the TINY_LFU
+ * policy a new entry is only admitted if it has been requested more often,
+ * by an approximate and periodically halved count, than the entry it would
+ * displace, so one-off inputs cannot flush the popular ones.
+ */
+public class PoemCache {
+
+    /**
+     * Eviction and admission policy of a PoemCache.
+     */
+    public enum Policy {
+        /** Always admit; evict the least recently used entry. */
+        LRU,
+        /** Admit only entries requested more often than the LRU victim. */
+        TINY_LFU
+    }
+
+    private final int maxEntries;
+    private final Policy policy;
+    private final LinkedHashMap<String, String> entries;
+    private final FrequencySketch frequencies;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long rejections = 0;
+    private long generation = 0;
+
+    // Abstraction function:
+    //   AF(maxEntries, policy, entries, frequencies, counters) = a cache
+    //     mapping each key of entries to its poem, least recently used first,
+    //     with access statistics given by the counters; generation counts the
+    //     calls to clear()
+    // Representation invariant:
+    //   maxEntries > 0
+    //   entries.size() <= maxEntries
+    //   frequencies != null iff policy == TINY_LFU
+    //   all counters >= 0
+    // Safety from rep exposure:
+    //   all fields are private; stats() returns an immutable snapshot
+    // Thread safety:
+    //   every method that touches the rep is synchronized on this
+
+    /**
+     * Make an empty cache.
+     *
+     * @param maxEntries largest number of poems to hold, positive
+     * @param policy eviction and admission policy
+     */
+    public PoemCache(int maxEntries, Policy policy) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive");
+        this.maxEntries = maxEntries;
+        this.policy = policy;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.frequencies = policy == Policy.TINY_LFU ? new FrequencySketch(maxEntries) : null;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert maxEntries > 0;
+        assert entries.size() <= maxEntries : "cache over capacity";
+        assert (frequencies != null) == (policy == Policy.TINY_LFU);
+    }
+
+    /**
+     * Look up a cached poem, counting a hit or a miss.
+     *
+     * @param key normalized input
+     * @return the cached poem for key, or null if there is none
+     */
+    public synchronized String get(String key) {
+        if (frequencies != null) {
+            frequencies.increment(key);
+        }
+        String poem = entries.get(key);
+        if (poem == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return poem;
+    }
+
+    /**
+     * Offer a poem to the cache. Under TINY_LFU it may be turned away.
+     *
+     * @param key normalized input
+     * @param poem poem generated for key
+     */
+    public synchronized void put(String key, String poem) {
+        if (entries.containsKey(key) || entries.size() < maxEntries) {
+            entries.put(key, poem);
+            return;
+        }
+        Iterator<Map.Entry<String, String>> eldest = entries.entrySet().iterator();
+        String victim = eldest.next().getKey();
+        if (frequencies != null && frequencies.estimate(key) <= frequencies.estimate(victim)) {
+            rejections++;
+            return;
+        }
+        eldest.remove();
+        evictions++;
+        entries.put(key, poem);
+        checkRep();
+    }
+
+    /**
+     * Offer a poem computed from the model as it was at a generation of this
+     * cache. If the cache was cleared since then, the poem may be stale and is
+     * dropped; otherwise it is offered as by put(key, poem).
+     *
+     * @param key normalized input
+     * @param poem poem generated for key
+     * @param generation generation() read before the poem was generated
+     */
+    public synchronized void put(String key, String poem, long generation) {
+        if (generation == this.generation) {
+            put(key, poem);
+        }
+    }
+
+    /**
+     * @return number of times this cache has been cleared; a poem computed
+     *         after reading it may be put() only while it is unchanged
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Remove every entry and start a new generation. Statistics and access
+     * frequencies are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        generation++;
+    }
+
+    /**
+     * @return a snapshot of this cache's statistics
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, rejections, entries.size());
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PoemCache(" + policy + ", max=" + maxEntries + ", " + stats() + ")";
+    }
+
+    /**
+     * Immutable snapshot of a PoemCache's statistics.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long rejections;
+        private final int size;
+
+        Stats(long hits, long misses, long evictions, long rejections, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.rejections = rejections;
+            this.size = size;
+        }
+
+        /** @return number of lookups that found a poem */
+        public long hits() { return hits; }
+
+        /** @return number of lookups that found nothing */
+        public long misses() { return misses; }
+
+        /** @return number of entries displaced to make room */
+        public long evictions() { return evictions; }
+
+        /** @return number of poems the admission policy turned away */
+        public long rejections() { return rejections; }
+
+        /** @return number of poems currently cached */
+        public int size() { return size; }
+
+        /** @return hits / (hits + misses), or 0 if there were no lookups */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d, rejections=%d, size=%d",
+                    hits, misses, evictions, rejections, size);
+        }
+    }
+
+    /**
+     * Count-min sketch of small saturating counters, halved every
+     * sampleSize increments so that old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int maxEntries) {
+            int width = Integer.highestOneBit(Math.max(16, maxEntries * 2 - 1)) << 1;
+            this.counters = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * maxEntries;
+        }
+
+        void increment(String key) {
+            int hash = key.hashCode();
+            for (int row = 0; row < DEPTH; row++) {
+                int slot = index(hash, row);
+                if (counters[row][slot] < MAX_COUNT) {
+                    counters[row][slot]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                for (byte[] row : counters) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        int estimate(String key) {
+            int hash = key.hashCode();
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counters[row][index(hash, row)]);
+            }
+            return min;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
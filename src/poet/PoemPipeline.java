@@ -0,0 +1,254 @@
+package poet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Transforms text line by line into poems, one poem per input line, on a
+ * pool of worker threads.
+ *
+ * <p>Input lines are grouped into chunks of batchLines lines, and each chunk
+ * is one GraphPoet.poems() call on a worker. The thread that feeds input also
+ * writes the finished chunks, in input order, once the oldest chunk is done
+ * and workers * 2 chunks are in flight. So output order matches input order,
+ * and memory is bounded by the chunks in flight, not by the input length.
+ *
+ * <p>The poet is only read by the workers, so it must not be trained or
+ * pruned while a pipeline uses it.
+ */
+class PoemPipeline {
+
+    private final GraphPoet poet;
+    private final int batchLines;
+    private final int maxInFlight;
+    private final Writer output;
+    private final ExecutorService workers;
+    private final Deque<Future<List<String>>> inFlight = new ArrayDeque<>();
+    private final long startNanos = System.nanoTime();
+    private long lines = 0;
+    private long inputChars = 0;
+    private long outputChars = 0;
+    private boolean finished = false;
+
+    // Abstraction function:
+    //   AF(poet, output, inFlight, lines, ...) = a transformation that has
+    //     read lines input lines of inputChars chars, written the poems of
+    //     all but the chunks in inFlight to output, oldest first, and is
+    //     computing those chunks' poems
+    // Representation invariant:
+    //   batchLines > 0, maxInFlight > 0
+    //   inFlight.size() <= maxInFlight
+    //   inFlight is empty if finished
+    // Safety from rep exposure:
+    //   all fields are private; workers see only their own chunk of lines
+    // Thread safety:
+    //   only the thread that calls transform() and finish() touches the rep;
+    //   workers share only the poet, which they only read
+
+    /**
+     * Make a pipeline and start its workers.
+     *
+     * @param poet poet that writes the poems; not changed while the pipeline
+     *        is in use
+     * @param workers number of worker threads, positive
+     * @param batchLines number of lines per chunk of work, positive
+     * @param output where to write the poems, one per line
+     */
+    public PoemPipeline(GraphPoet poet, int workers, int batchLines, Writer output) {
+        if (workers <= 0) throw new IllegalArgumentException("workers must be positive");
+        if (batchLines <= 0) throw new IllegalArgumentException("batchLines must be positive");
+        this.poet = poet;
+        this.batchLines = batchLines;
+        this.maxInFlight = workers * 2;
+        this.output = output;
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "poem-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert batchLines > 0 && maxInFlight > 0;
+        assert inFlight.size() <= maxInFlight;
+        assert !finished || inFlight.isEmpty();
+    }
+
+    /**
+     * Read an input to its end and queue a poem for each of its lines. Lines
+     * end as for BufferedReader.readLine(); the input is not closed.
+     *
+     * @param input text to transform
+     * @throws IOException if reading input or writing output fails
+     */
+    public void transform(Reader input) throws IOException {
+        if (finished) throw new IllegalStateException("pipeline is finished");
+        BufferedReader reader = input instanceof BufferedReader
+                ? (BufferedReader) input : new BufferedReader(input);
+        List<String> chunk = new ArrayList<>(batchLines);
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            chunk.add(line);
+            lines++;
+            inputChars += line.length() + 1;
+            if (chunk.size() == batchLines) {
+                submit(chunk);
+                chunk = new ArrayList<>(batchLines);
+            }
+        }
+        // a chunk never spans inputs, so each input's last line stays a line
+        if (!chunk.isEmpty()) {
+            submit(chunk);
+        }
+        checkRep();
+    }
+
+    private void submit(List<String> chunk) throws IOException {
+        if (inFlight.size() == maxInFlight) {
+            writeOldest();
+        }
+        inFlight.add(workers.submit(() -> poet.poems(chunk)));
+    }
+
+    private void writeOldest() throws IOException {
+        List<String> poems;
+        try {
+            poems = inFlight.remove().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for poems");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        for (String poem : poems) {
+            output.write(poem);
+            output.write('\n');
+            outputChars += poem.length() + 1;
+        }
+    }
+
+    /**
+     * Write the poems still in flight, flush the output, and stop the
+     * workers. The output is not closed.
+     *
+     * @return counts and timings of everything this pipeline transformed
+     * @throws IOException if writing output fails
+     */
+    public Report finish() throws IOException {
+        try {
+            while (!inFlight.isEmpty()) {
+                writeOldest();
+            }
+            output.flush();
+        } finally {
+            workers.shutdownNow();
+            inFlight.clear();
+            finished = true;
+        }
+        checkRep();
+        return new Report(lines, inputChars, outputChars, System.nanoTime() - startNanos, peakHeapBytes());
+    }
+
+    /**
+     * @return sum over the heap memory pools of each pool's peak usage since
+     *         the JVM started; at least the peak heap use
+     */
+    static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Immutable summary of a pipeline run.
+     */
+    static final class Report {
+        private final long lines;
+        private final long inputChars;
+        private final long outputChars;
+        private final long nanos;
+        private final long peakHeapBytes;
+
+        // Abstraction function:
+        //   AF(lines, inputChars, outputChars, nanos, peakHeapBytes) = a run
+        //     that turned lines lines of inputChars chars into outputChars
+        //     chars of poems in nanos nanoseconds, with the heap peaking at
+        //     no more than peakHeapBytes
+        // Representation invariant:
+        //   all fields nonnegative
+        // Safety from rep exposure:
+        //   all fields are private and immutable
+
+        Report(long lines, long inputChars, long outputChars, long nanos, long peakHeapBytes) {
+            this.lines = lines;
+            this.inputChars = inputChars;
+            this.outputChars = outputChars;
+            this.nanos = nanos;
+            this.peakHeapBytes = peakHeapBytes;
+            assert lines >= 0 && inputChars >= 0 && outputChars >= 0 && nanos >= 0 && peakHeapBytes >= 0;
+        }
+
+        /** @return number of input lines, and so of poems written */
+        public long lines() {
+            return lines;
+        }
+
+        /** @return chars read, counting one per line end */
+        public long inputChars() {
+            return inputChars;
+        }
+
+        /** @return chars written, counting one per line end */
+        public long outputChars() {
+            return outputChars;
+        }
+
+        /** @return wall-clock nanoseconds from pipeline creation to finish */
+        public long nanos() {
+            return nanos;
+        }
+
+        /** @return upper bound on the peak heap use of the JVM, in bytes */
+        public long peakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        /** @return input lines transformed per second */
+        public double linesPerSecond() {
+            return nanos == 0 ? 0 : lines * 1e9 / nanos;
+        }
+
+        /** @return input chars transformed per second */
+        public double charsPerSecond() {
+            return nanos == 0 ? 0 : inputChars * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines in %.3f s: %.0f lines/s, %.2f Mchar/s in, %.2f Mchar/s out, peak heap %.1f MiB",
+                    lines, nanos / 1e9, linesPerSecond(), charsPerSecond() / 1e6,
+                    nanos == 0 ? 0 : outputChars * 1e3 / nanos, peakHeapBytes / (1024.0 * 1024));
+        }
+    }
+}
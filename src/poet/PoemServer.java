@@ -0,0 +1,187 @@
+package poet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP service that serves poems from a GraphPoet.
+ *
+ * <p>Protocol: POST /poem with a UTF-8 text body holding one input per line.
+ * The response is text/plain with one poem per line, in the same order.
+ * Responses always carry a Content-Length, so clients can keep connections
+ * alive across requests.
+ *
+ * <p>Each exchange is handled on its own thread, and the inputs of concurrent
+ * requests are micro-batched into GraphPoet.poems(), with up to a configured
+ * number of batches transformed in parallel.
+ *
+ * <p>The JDK server writes headers and body separately, so without
+ * -Dsun.net.httpserver.nodelay=true small responses wait on delayed ACKs;
+ * main() turns that option on unless it is set explicitly.
+ */
+public class PoemServer {
+
+    /** Default largest number of inputs per micro-batch. */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    /** Default longest time, in milliseconds, an input waits for its batch. */
+    public static final long DEFAULT_MAX_BATCH_DELAY_MILLIS = 2;
+
+    /** Default largest number of batches transformed at once: one per processor. */
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private final HttpServer server;
+    private final PoemBatcher batcher;
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+
+    // Abstraction function:
+    //   AF(server, batcher, handlers) = a poem service listening on server's
+    //     address, answering requests on handlers threads through batcher
+    // Representation invariant:
+    //   server dispatches only to handlers
+    // Safety from rep exposure:
+    //   all fields are private and never returned
+    // Thread safety:
+    //   handler threads share only the thread-safe batcher
+
+    /**
+     * Make a server that is bound but not yet started, and transforms up to
+     * DEFAULT_PARALLELISM batches at once.
+     *
+     * @param poet poet that generates the poems
+     * @param address address to listen on; port 0 picks a free port
+     * @param maxBatchSize largest number of inputs per micro-batch, positive
+     * @param maxBatchDelayMillis longest time an input waits for others to join
+     *        its batch, nonnegative
+     * @throws IOException if the address cannot be bound
+     */
+    public PoemServer(GraphPoet poet, InetSocketAddress address,
+            int maxBatchSize, long maxBatchDelayMillis) throws IOException {
+        this(poet, address, maxBatchSize, maxBatchDelayMillis, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Make a server that is bound but not yet started.
+     *
+     * @param poet poet that generates the poems
+     * @param address address to listen on; port 0 picks a free port
+     * @param maxBatchSize largest number of inputs per micro-batch, positive
+     * @param maxBatchDelayMillis longest time an input waits for others to join
+     *        its batch, nonnegative
+     * @param parallelism largest number of batches transformed at once, positive
+     * @throws IOException if the address cannot be bound
+     */
+    public PoemServer(GraphPoet poet, InetSocketAddress address,
+            int maxBatchSize, long maxBatchDelayMillis, int parallelism) throws IOException {
+        this.batcher = new PoemBatcher(poet, maxBatchSize, maxBatchDelayMillis, parallelism);
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext("/poem", this::handle);
+        this.server.setExecutor(handlers);
+    }
+
+    /**
+     * Start serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop serving, waiting for in-flight requests to finish.
+     */
+    public void stop() {
+        server.stop(1);
+        handlers.shutdown();
+        try {
+            handlers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        batcher.close();
+    }
+
+    /**
+     * @return the port this server is bound to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "use POST with one input per line\n");
+                return;
+            }
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            try (BufferedReader body = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                for (String line = body.readLine(); line != null; line = body.readLine()) {
+                    results.add(batcher.submit(line));
+                }
+            }
+            StringBuilder poems = new StringBuilder();
+            for (CompletableFuture<String> result : results) {
+                poems.append(result.get()).append('\n');
+            }
+            respond(exchange, 200, poems.toString());
+        } catch (ExecutionException e) {
+            respond(exchange, 500, e.getCause() + "\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "interrupted\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Serve poems over HTTP until the process is killed.
+     *
+     * @param args corpus file, then optionally port (default 8080), maximum
+     *        batch delay in milliseconds, and number of batches transformed
+     *        at once
+     * @throws IOException if the corpus cannot be read or the port bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: PoemServer corpus [port] [maxBatchDelayMillis] [parallelism]");
+            System.exit(2);
+        }
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        GraphPoet poet = new GraphPoet(new File(args[0]));
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        long delay = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_MAX_BATCH_DELAY_MILLIS;
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PARALLELISM;
+        PoemServer server = new PoemServer(poet, new InetSocketAddress(port), DEFAULT_MAX_BATCH_SIZE, delay,
+                parallelism);
+        server.start();
+        System.out.println("serving poems on port " + server.getPort());
+    }
+}
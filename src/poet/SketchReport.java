@@ -0,0 +1,116 @@
+package poet;
+
+/**
+ * Immutable summary of one GraphPoet.trainApproximate() call: how much the
+ * count-min sketch in front of the graph saw, how many word pairs it let
+ * into the graph, and how far its counts can be off.
+ *
+ * <p>Every word pair that occurred at least threshold() times is in the
+ * graph. A pair that occurred fewer than threshold() - errorBound() times
+ * is let in with probability at most delta(). A pair let in gets weight
+ * threshold() and is then counted exactly, so its weight exceeds its true
+ * count by at most threshold() - 1, and with probability at least
+ * 1 - delta() by at most errorBound().
+ *
+ * <p>The sketch counts 64-bit hashes of the pairs, so these bounds also
+ * assume no two distinct pairs of the corpus hash alike; for a corpus of n
+ * distinct pairs that fails with probability under n^2 / 2^65.
+ */
+public final class SketchReport {
+
+    private final long pairs;
+    private final long sketchedPairs;
+    private final int admittedEdges;
+    private final int threshold;
+    private final int width;
+    private final int depth;
+    private final long errorBound;
+    private final long sketchBytes;
+
+    // Abstraction function:
+    //   AF(pairs, sketchedPairs, ...) = a training run over pairs word pairs,
+    //     sketchedPairs of which were counted by a depth x width sketch of
+    //     sketchBytes bytes, that added admittedEdges edges whose estimated
+    //     count reached threshold, with additive error at most errorBound
+    // Representation invariant:
+    //   0 <= sketchedPairs <= pairs, 0 <= admittedEdges <= sketchedPairs
+    //   threshold >= 1, width >= 1, depth >= 1, errorBound >= 0
+    // Safety from rep exposure:
+    //   all fields are private and immutable
+
+    SketchReport(long pairs, int admittedEdges, int threshold, CountMinSketch sketch) {
+        this.pairs = pairs;
+        this.sketchedPairs = sketch.total();
+        this.admittedEdges = admittedEdges;
+        this.threshold = threshold;
+        this.width = sketch.width();
+        this.depth = sketch.depth();
+        this.errorBound = sketch.errorBound();
+        this.sketchBytes = sketch.estimatedHeapBytes();
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert 0 <= sketchedPairs && sketchedPairs <= pairs;
+        assert 0 <= admittedEdges && admittedEdges <= sketchedPairs;
+        assert threshold >= 1 && width >= 1 && depth >= 1 && errorBound >= 0;
+    }
+
+    /** @return word pairs in the corpus, counting repeats */
+    public long pairs() {
+        return pairs;
+    }
+
+    /** @return pairs counted by the sketch, i.e. not already edges of the graph */
+    public long sketchedPairs() {
+        return sketchedPairs;
+    }
+
+    /** @return edges added to the graph */
+    public int admittedEdges() {
+        return admittedEdges;
+    }
+
+    /** @return estimated count a pair needed to become an edge */
+    public int threshold() {
+        return threshold;
+    }
+
+    /** @return counters per sketch row */
+    public int width() {
+        return width;
+    }
+
+    /** @return sketch rows */
+    public int depth() {
+        return depth;
+    }
+
+    /** @return relative error of the sketch: e / width() */
+    public double epsilon() {
+        return Math.E / width;
+    }
+
+    /** @return probability that an estimate exceeds errorBound(): e^-depth() */
+    public double delta() {
+        return Math.exp(-depth);
+    }
+
+    /** @return most a sketch estimate exceeds the true count, with probability 1 - delta() */
+    public long errorBound() {
+        return errorBound;
+    }
+
+    /** @return estimated bytes of heap the sketch took */
+    public long sketchBytes() {
+        return sketchBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d pairs, %d sketched in %dx%d counters (%.1f KiB); %d edges admitted at threshold %d;"
+                + " estimates exceed true counts by at most %d (epsilon %.2g) with probability %.4f",
+                pairs, sketchedPairs, depth, width, sketchBytes / 1024.0, admittedEdges, threshold,
+                errorBound, epsilon(), 1 - delta());
+    }
+}
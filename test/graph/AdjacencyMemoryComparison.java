@@ -0,0 +1,103 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory comparison of a whole ConcreteVerticesGraph against the same graph
+ * in the layout it replaced: a list of vertices, each with one
+ * HashMap&lt;String, Integer&gt; of targets and no index of sources. Reports
+ * both the HeapSize estimates and the heap actually retained, measured
+ * after GC.
+ *
+ * <p>Run with: java -cp bin graph.AdjacencyMemoryComparison [vertices] [outDegree]
+ */
+public class AdjacencyMemoryComparison {
+
+    public static void main(String[] args) {
+        int vertices = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int outDegree = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+        // labels are shared by both layouts, so neither measurement counts them
+        String[] labels = new String[vertices];
+        long labelBytes = 0;
+        for (int i = 0; i < vertices; i++) {
+            labels[i] = "w" + i;
+            labelBytes += HeapSize.string(labels[i]);
+        }
+
+        long before = usedHeap();
+        List<BoxedVertex> boxed = new ArrayList<>();
+        for (int v = 0; v < vertices; v++) {
+            boxed.add(new BoxedVertex(labels[v]));
+        }
+        for (int v = 0; v < vertices; v++) {
+            for (int d = 0; d < outDegree; d++) {
+                boxed.get(v).edges.put(labels[target(v, d, vertices)], weight(v, d));
+            }
+        }
+        long boxedMeasured = usedHeap() - before;
+
+        before = usedHeap();
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        for (int v = 0; v < vertices; v++) {
+            graph.add(labels[v]);
+        }
+        for (int v = 0; v < vertices; v++) {
+            for (int d = 0; d < outDegree; d++) {
+                graph.set(labels[v], labels[target(v, d, vertices)], weight(v, d));
+            }
+        }
+        long graphMeasured = usedHeap() - before;
+
+        long boxedEstimate = HeapSize.align(HeapSize.HEADER + HeapSize.REFERENCE) + HeapSize.arrayList(vertices);
+        for (BoxedVertex v : boxed) {
+            boxedEstimate += HeapSize.align(HeapSize.HEADER + 2 * HeapSize.REFERENCE)
+                    + LabelWeightTable.hashMapHeapBytes(v.edges.size(), v.edges.values());
+        }
+        GraphStats stats = graph.stats();
+        long graphEstimate = stats.estimatedHeapBytes() - labelBytes;
+
+        long edges = stats.edgeCount();
+        System.out.printf("vertices=%d outDegree=%d edges=%d%n", vertices, outDegree, edges);
+        report("vertex list + HashMap", boxedEstimate, boxedMeasured, edges);
+        report("ConcreteVerticesGraph", graphEstimate, graphMeasured, edges);
+        System.out.printf("reduction: %.1fx estimated, %.1fx measured  (%d)%n",
+                (double) boxedEstimate / graphEstimate, (double) boxedMeasured / graphMeasured,
+                boxed.size() + graph.vertices().size());
+    }
+
+    /** A vertex as the graph stored it before LabelWeightTable. */
+    private static final class BoxedVertex {
+        final String label;
+        final Map<String, Integer> edges = new HashMap<>();
+
+        BoxedVertex(String label) {
+            this.label = label;
+        }
+    }
+
+    private static int target(int v, int d, int vertices) {
+        return (int) ((v * 31L + d * 7919L) % vertices);
+    }
+
+    private static int weight(int v, int d) {
+        // mix of cached and uncached Integer values
+        return 1 + (v + d * 37) % 1000;
+    }
+
+    private static void report(String name, long estimate, long measured, long edges) {
+        System.out.printf("%-24s estimated %8.1f KiB (%5.1f B/edge)  measured %8.1f KiB (%5.1f B/edge)%n",
+                name, estimate / 1024.0, (double) estimate / edges, measured / 1024.0, (double) measured / edges);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -2,7 +2,10 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -116,6 +119,64 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
         assertTrue("Target should be B with weight 3", targets.containsKey("B") && targets.get("B") == 3);
     }
 
+    /*
+     * Testing topTargets(String source, int k) and topSources(String target, int k)
+     */
+    @Test
+    public void testTopTargetsOrderedByWeight() {
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        graph.set("A", "B", 2);
+        graph.set("A", "C", 7);
+        graph.set("A", "D", 4);
+
+        Map<String, Integer> top = graph.topTargets("A", 2);
+        assertEquals("Expected the two heaviest targets", 2, top.size());
+        assertEquals("Heaviest target first", "C", top.keySet().iterator().next());
+        assertEquals("Expected C and D", (Integer) 4, top.get("D"));
+        assertTrue("Unknown vertex has no targets", graph.topTargets("Z", 3).isEmpty());
+    }
+
+    @Test
+    public void testTopSourcesFollowsSetAndRemove() {
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        graph.set("A", "Z", 1);
+        graph.set("B", "Z", 5);
+        graph.set("C", "Z", 3);
+
+        graph.set("A", "Z", 9);
+        assertEquals("Reweighted edge should move to the front", "A", graph.topSources("Z", 1).keySet().iterator().next());
+
+        graph.set("A", "Z", 0);
+        graph.remove("B");
+        assertEquals("Only C should remain", Collections.singletonMap("C", 3), graph.topSources("Z", 3));
+        assertTrue("Removed vertex has no targets", graph.topTargets("B", 3).isEmpty());
+    }
+
+    /*
+     * Testing addListener(GraphListener<String> listener)
+     */
+    @Test
+    public void testListenerSeesEveryChange() {
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        List<String> events = new ArrayList<>();
+        graph.addListener(new GraphListener<String>() {
+            @Override public void vertexAdded(String vertex) { events.add("+" + vertex); }
+            @Override public void edgeSet(String source, String target, int oldWeight, int newWeight) {
+                events.add(source + "->" + target + " " + oldWeight + ":" + newWeight);
+            }
+            @Override public void vertexRemoved(String vertex) { events.add("-" + vertex); }
+        });
+        graph.add("A");
+        graph.add("A");
+        graph.set("A", "B", 2);
+        graph.set("A", "B", 2);
+        graph.set("A", "B", 0);
+        graph.remove("A");
+
+        assertEquals("Unchanged edges and duplicate vertices are not reported",
+                Arrays.asList("+A", "+B", "A->B 0:2", "A->B 2:0", "-A"), events);
+    }
+
     /*
      * Testing toString()
      */
@@ -4,7 +4,11 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -94,6 +98,78 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
         assertTrue("Target should be B with weight 3", targets.containsKey("B") && targets.get("B") == 3);
     }
 
+    // Testing topTargets(String source, int k) and topSources(String target, int k)
+    @Test
+    public void testTopTargetsOrderedByWeight() {
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        graph.set("A", "B", 2);
+        graph.set("A", "C", 7);
+        graph.set("A", "D", 4);
+
+        Map<String, Integer> top = graph.topTargets("A", 2);
+        assertEquals("Expected the two heaviest targets", 2, top.size());
+        assertEquals("Heaviest target first", "C", top.keySet().iterator().next());
+        assertEquals("Expected C and D", (Integer) 4, top.get("D"));
+        assertTrue("Unknown vertex has no targets", graph.topTargets("Z", 3).isEmpty());
+    }
+
+    @Test
+    public void testTopSourcesFollowsSetAndRemove() {
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        graph.set("A", "Z", 1);
+        graph.set("B", "Z", 5);
+        graph.set("C", "Z", 3);
+
+        graph.set("A", "Z", 9);
+        assertEquals("Reweighted edge should move to the front", "A", graph.topSources("Z", 1).keySet().iterator().next());
+
+        graph.set("A", "Z", 0);
+        graph.remove("B");
+        assertEquals("Only C should remain", Collections.singletonMap("C", 3), graph.topSources("Z", 3));
+        assertTrue("Removed vertex has no targets", graph.topTargets("B", 3).isEmpty());
+    }
+
+    @Test
+    public void testRemoveSelfLoopAndNeighbors() {
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        graph.set("A", "A", 2);
+        graph.set("A", "B", 3);
+        graph.set("C", "A", 4);
+        Map<String, Integer> sources = graph.sources("B");
+        assertEquals(Collections.singletonMap("A", 3), sources);
+
+        assertTrue(graph.remove("A"));
+        assertTrue("sources(B) is a live view", sources.isEmpty());
+        assertTrue(graph.targets("C").isEmpty());
+        assertTrue(graph.topSources("B", 2).isEmpty());
+        graph.set("A", "B", 1);
+        assertEquals("re-added vertex starts without its old edges",
+                Collections.singletonMap("B", 1), graph.topTargets("A", 5));
+    }
+
+    // Testing addListener(GraphListener<String> listener)
+    @Test
+    public void testListenerSeesEveryChange() {
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        List<String> events = new ArrayList<>();
+        graph.addListener(new GraphListener<String>() {
+            @Override public void vertexAdded(String vertex) { events.add("+" + vertex); }
+            @Override public void edgeSet(String source, String target, int oldWeight, int newWeight) {
+                events.add(source + "->" + target + " " + oldWeight + ":" + newWeight);
+            }
+            @Override public void vertexRemoved(String vertex) { events.add("-" + vertex); }
+        });
+        graph.add("A");
+        graph.add("A");
+        graph.set("A", "B", 2);
+        graph.set("A", "B", 2);
+        graph.set("A", "B", 0);
+        graph.remove("A");
+
+        assertEquals("Unchanged edges and duplicate vertices are not reported",
+                Arrays.asList("+A", "+B", "A->B 0:2", "A->B 2:0", "-A"), events);
+    }
+
     // Testing toString()
     @Test
     public void testToString() {
@@ -136,4 +212,36 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
     public void testVertexInvalidEdgeWeight() {
         new Vertex("A").addEdge("B", -1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testVertexWeightAndDegree() {
+        Vertex vertex = new Vertex("A", 4);
+        vertex.addEdge("B", 2);
+        vertex.addEdge("C", 300);
+        assertEquals(2, vertex.getWeight("B"));
+        assertEquals(300, vertex.getWeight("C"));
+        assertEquals("absent target has weight 0", 0, vertex.getWeight("D"));
+        assertEquals(2, vertex.outDegree());
+        assertSame("getEdges() is a view, not a copy", vertex.getEdges(), vertex.getEdges());
+    }
+
+    @Test
+    public void testAdjacencySmallerThanBoxedMaps() {
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        for (int i = 0; i < 2000; i++) {
+            graph.set("v" + (i % 20), "w" + i, 1 + i);
+        }
+        assertTrue(graph.adjacencyHeapBytes() < graph.boxedAdjacencyHeapBytes());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testTargetsViewFailsFastOnRemoval() {
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        for (int i = 0; i < 50; i++) {
+            graph.set("A", "B" + i, 1);
+        }
+        for (String target : graph.targets("A").keySet()) {
+            graph.set("A", target, 0);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class EdgeSpliteratorTest {
+
+    // Testing strategy
+    //   edges(): ConcreteEdgesGraph, ConcreteVerticesGraph; empty graph,
+    //     isolated vertices, hub vertex; sequential and parallel
+    //   EdgeSpliterator.trySplit(): balanced by degree, single group,
+    //     after partial traversal
+    //   estimateSize(): exact before and during traversal
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static List<Graph<String>> hubGraphs() {
+        List<Graph<String>> graphs = new ArrayList<>();
+        for (Graph<String> graph : Arrays.<Graph<String>>asList(new ConcreteEdgesGraph(), new ConcreteVerticesGraph())) {
+            for (int i = 0; i < 200; i++) {
+                graph.set("hub", "w" + i, i + 1);
+            }
+            for (int i = 0; i < 50; i++) {
+                graph.set("w" + i, "w" + (i + 1), 1);
+            }
+            graph.add("isolated");
+            graphs.add(graph);
+        }
+        return graphs;
+    }
+
+    private static List<WeightedEdge<String>> edges(Graph<String> graph, boolean parallel) {
+        if (graph instanceof ConcreteEdgesGraph) {
+            ConcreteEdgesGraph g = (ConcreteEdgesGraph) graph;
+            return (parallel ? g.edges().parallel() : g.edges()).collect(Collectors.toList());
+        }
+        ConcreteVerticesGraph g = (ConcreteVerticesGraph) graph;
+        return (parallel ? g.edges().parallel() : g.edges()).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testEmptyGraph() {
+        assertEquals(0, new ConcreteEdgesGraph().edges().count());
+        assertEquals(0, new ConcreteVerticesGraph().edges().count());
+    }
+
+    @Test
+    public void testStreamMatchesTargets() {
+        for (Graph<String> graph : hubGraphs()) {
+            for (boolean parallel : new boolean[] { false, true }) {
+                List<WeightedEdge<String>> edges = edges(graph, parallel);
+                assertEquals(250, edges.size());
+                assertEquals(250, edges.stream().distinct().count());
+                for (WeightedEdge<String> edge : edges) {
+                    assertEquals(graph.targets(edge.getSource()).get(edge.getTarget()), (Integer) edge.getWeight());
+                }
+                long total = edges.stream().mapToLong(WeightedEdge::getWeight).sum();
+                assertEquals(200 * 201 / 2 + 50, total);
+            }
+        }
+    }
+
+    @Test
+    public void testSplitBalancesByDegree() {
+        // one group of 100 edges, then 100 groups of 1 edge
+        long[] prefix = new long[102];
+        prefix[1] = 100;
+        for (int i = 2; i < prefix.length; i++) {
+            prefix[i] = prefix[i - 1] + 1;
+        }
+        Spliterator<Integer> right = new EdgeSpliterator<>(prefix, i -> groupOf(prefix, i));
+        Spliterator<Integer> left = right.trySplit();
+        assertNotNull(left);
+        assertEquals("hub alone on the left", 100, left.estimateSize());
+        assertEquals(100, right.estimateSize());
+        assertNull("a single group does not split", left.trySplit());
+
+        long[] count = new long[1];
+        left.forEachRemaining(e -> count[0]++);
+        right.forEachRemaining(e -> count[0]++);
+        assertEquals(200, count[0]);
+    }
+
+    @Test
+    public void testSizeDuringTraversal() {
+        long[] prefix = { 0, 3, 3, 5 };
+        Spliterator<Integer> it = new EdgeSpliterator<>(prefix, i -> groupOf(prefix, i));
+        assertTrue(it.tryAdvance(e -> { }));
+        assertEquals(4, it.estimateSize());
+        assertNull("cannot split inside a group", it.trySplit());
+        it.tryAdvance(e -> { });
+        it.tryAdvance(e -> { });
+        assertEquals(2, it.estimateSize());
+        assertNotNull(it.trySplit());
+    }
+
+    private static Iterator<Integer> groupOf(long[] prefix, int i) {
+        List<Integer> group = new ArrayList<>();
+        for (long e = prefix[i]; e < prefix[i + 1]; e++) {
+            group.add((int) e);
+        }
+        return group.iterator();
+    }
+}
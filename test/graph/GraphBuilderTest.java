@@ -0,0 +1,92 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class GraphBuilderTest {
+
+    // Testing strategy
+    //   hints: none, vertices only, edges, vertices and out-degree, vertices
+    //     and density; illegal values
+    //   chosenRepresentation(): EDGE_LIST, VERTEX_ADJACENCY, SORTED_RUNS at
+    //     and around the thresholds; forced representation
+    //   build(): class of the result matches the choice; result is empty
+    //     and usable
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testNoHints() {
+        GraphBuilder builder = new GraphBuilder();
+        assertEquals(GraphBuilder.Representation.VERTEX_ADJACENCY, builder.chosenRepresentation());
+        assertTrue(builder.build() instanceof ConcreteVerticesGraph);
+        assertEquals("vertices alone say nothing about edges", GraphBuilder.Representation.VERTEX_ADJACENCY,
+                new GraphBuilder().expectedVertices(10).chosenRepresentation());
+    }
+
+    @Test
+    public void testThresholds() {
+        assertEquals(GraphBuilder.Representation.EDGE_LIST,
+                new GraphBuilder().expectedEdges(GraphBuilder.SMALL_EDGES).chosenRepresentation());
+        assertEquals(GraphBuilder.Representation.VERTEX_ADJACENCY,
+                new GraphBuilder().expectedEdges(GraphBuilder.SMALL_EDGES + 1).chosenRepresentation());
+        assertEquals(GraphBuilder.Representation.VERTEX_ADJACENCY,
+                new GraphBuilder().expectedEdges(GraphBuilder.LARGE_EDGES - 1).chosenRepresentation());
+        assertEquals(GraphBuilder.Representation.SORTED_RUNS,
+                new GraphBuilder().expectedEdges(GraphBuilder.LARGE_EDGES).chosenRepresentation());
+    }
+
+    @Test
+    public void testDerivedEdgeCount() {
+        // 2M vertices with out-degree 8 is 16M edges
+        assertEquals(GraphBuilder.Representation.SORTED_RUNS,
+                new GraphBuilder().expectedVertices(2_000_000).averageOutDegree(8).chosenRepresentation());
+        assertEquals(GraphBuilder.Representation.EDGE_LIST,
+                new GraphBuilder().expectedVertices(20).averageOutDegree(2).chosenRepresentation());
+        assertEquals(GraphBuilder.Representation.VERTEX_ADJACENCY,
+                new GraphBuilder().expectedVertices(1000).density(0.01).chosenRepresentation());
+        assertEquals("explicit edge count wins", GraphBuilder.Representation.EDGE_LIST,
+                new GraphBuilder().expectedVertices(1000).density(0.5).expectedEdges(10).chosenRepresentation());
+    }
+
+    @Test
+    public void testForcedRepresentation() {
+        Graph<String> graph = new GraphBuilder().expectedEdges(10)
+                .representation(GraphBuilder.Representation.SORTED_RUNS).build();
+        assertTrue(graph instanceof SortedRunGraph);
+        assertTrue(new GraphBuilder().expectedEdges(10).build() instanceof ConcreteEdgesGraph);
+        assertTrue(new GraphBuilder().expectedEdges(GraphBuilder.LARGE_EDGES).build() instanceof SortedRunGraph);
+    }
+
+    @Test
+    public void testBuiltGraphsUsable() {
+        for (GraphBuilder.Representation representation : GraphBuilder.Representation.values()) {
+            Graph<String> graph = new GraphBuilder().expectedVertices(100).averageOutDegree(50)
+                    .representation(representation).build();
+            assertEquals(Collections.emptySet(), graph.vertices());
+            assertEquals(0, graph.set("a", "b", 3));
+            assertEquals(Collections.singletonMap("b", 3), graph.targets("a"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeVertices() {
+        new GraphBuilder().expectedVertices(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDensityAboveOne() {
+        new GraphBuilder().density(1.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNaNDegree() {
+        new GraphBuilder().averageOutDegree(Double.NaN);
+    }
+}
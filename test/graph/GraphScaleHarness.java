@@ -0,0 +1,273 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Scale regression harness for Graph implementations.
+ *
+ * <p>For each synthetic distribution and each size n, the harness generates a
+ * graph of n edges over n/4 vertices and a corpus of n words, then runs the
+ * same operation mix against every implementation:
+ * <ul>
+ * <li>set: build the graph with n set() calls
+ * <li>train: count the corpus bigrams with targets() and set(), as GraphPoet does
+ * <li>targets, sources: LOOKUP_PASSES * n lookups of random vertices
+ * <li>reweight: change the weight of all n edges
+ * <li>remove: remove n/20 random vertices
+ * </ul>
+ * The final graphs of all implementations must agree. For each operation the
+ * harness fits the exponent k of time ~ n^k across sizes by least squares on
+ * a log-log scale, and fails if k exceeds the configured bound.
+ *
+ * <p>Timings are meaningless with assertions enabled, because checkRep() runs
+ * on every mutation. A fixed heap keeps heap resizing out of the largest
+ * sizes. Run with assertions disabled and a fixed heap:
+ * <pre>
+ *   java -da -Xms2g -Xmx2g -cp bin graph.GraphScaleHarness
+ * </pre>
+ * System properties:
+ * <ul>
+ * <li>scale.sizes: comma-separated edge counts (default 4000,8000,16000,32000)
+ * <li>scale.bound: default exponent bound (default 1.75)
+ * <li>scale.bounds: comma-separated overrides, Implementation.operation=bound
+ * <li>scale.repeat: runs per measurement, the fastest is kept (default 3)
+ * <li>scale.seed: random seed (default 42)
+ * </ul>
+ * The process exits with status 1 if any bound is exceeded or any
+ * implementations disagree.
+ */
+public class GraphScaleHarness {
+
+    /** Implementations under test, by name. */
+    static final Map<String, Supplier<Graph<String>>> IMPLEMENTATIONS = new LinkedHashMap<>();
+    static {
+        IMPLEMENTATIONS.put("ConcreteEdgesGraph", ConcreteEdgesGraph::new);
+        IMPLEMENTATIONS.put("ConcreteVerticesGraph", ConcreteVerticesGraph::new);
+        IMPLEMENTATIONS.put("SortedRunGraph", SortedRunGraph::new);
+    }
+
+    /** Passes over the queries per lookup measurement, to lift it above timer noise. */
+    static final int LOOKUP_PASSES = 10;
+
+    static final String[] OPERATIONS = { "set", "train", "targets", "sources", "reweight", "remove" };
+
+    /**
+     * Known exponent bounds above the default, by Implementation.operation.
+     * The edge-list representation scans its list on every write, so its
+     * writes are quadratic by design. They measure k = 2.0 on uniform graphs
+     * and up to about 2.45 on skewed ones, where the list falls out of cache
+     * between the smaller sizes; the bound still catches a cubic regression.
+     */
+    static final Map<String, Double> BASELINE_BOUNDS = new HashMap<>();
+    static {
+        BASELINE_BOUNDS.put("ConcreteEdgesGraph.set", 2.5);
+        BASELINE_BOUNDS.put("ConcreteEdgesGraph.train", 2.5);
+        BASELINE_BOUNDS.put("ConcreteEdgesGraph.reweight", 2.5);
+        BASELINE_BOUNDS.put("ConcreteEdgesGraph.remove", 2.5);
+    }
+
+    public static void main(String[] args) {
+        boolean assertions = false;
+        assert assertions = true;
+        if (assertions) {
+            System.err.println("warning: assertions are enabled; timings include checkRep(). Run with -da.");
+        }
+        int[] sizes = Arrays.stream(System.getProperty("scale.sizes", "4000,8000,16000,32000").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        double defaultBound = Double.parseDouble(System.getProperty("scale.bound", "1.75"));
+        int repeat = Integer.getInteger("scale.repeat", 3);
+        long seed = Long.getLong("scale.seed", 42L);
+        Map<String, Double> bounds = new HashMap<>(BASELINE_BOUNDS);
+        for (String entry : System.getProperty("scale.bounds", "").split(",")) {
+            if (!entry.trim().isEmpty()) {
+                String[] kv = entry.split("=");
+                bounds.put(kv[0].trim(), Double.parseDouble(kv[1].trim()));
+            }
+        }
+
+        // warm up the JIT on the smallest size
+        run(SyntheticGraphs.Distribution.UNIFORM, sizes[0], seed, 1);
+
+        boolean failed = false;
+        for (SyntheticGraphs.Distribution distribution : SyntheticGraphs.Distribution.values()) {
+            Map<String, double[]> times = new LinkedHashMap<>();
+            for (int s = 0; s < sizes.length; s++) {
+                Map<String, Result> results = run(distribution, sizes[s], seed, repeat);
+                Result reference = null;
+                for (Map.Entry<String, Result> result : results.entrySet()) {
+                    if (reference == null) {
+                        reference = result.getValue();
+                    } else if (!reference.agrees(result.getValue())) {
+                        System.out.printf("MISMATCH %s n=%d: %s disagrees with %s%n", distribution, sizes[s],
+                                result.getKey(), results.keySet().iterator().next());
+                        failed = true;
+                    }
+                    for (int op = 0; op < OPERATIONS.length; op++) {
+                        String key = result.getKey() + "." + OPERATIONS[op];
+                        times.computeIfAbsent(key, k -> new double[sizes.length])[s] = result.getValue().nanos[op];
+                    }
+                }
+            }
+            System.out.printf("%n%s%n%-32s", distribution, "operation \\ n");
+            for (int size : sizes) {
+                System.out.printf("%11d", size);
+            }
+            System.out.printf("%8s %6s%n", "k", "bound");
+            for (Map.Entry<String, double[]> curve : times.entrySet()) {
+                double k = fitExponent(sizes, curve.getValue());
+                double bound = bounds.getOrDefault(curve.getKey(), defaultBound);
+                boolean ok = k <= bound;
+                failed |= !ok;
+                System.out.printf("%-32s", curve.getKey());
+                for (double t : curve.getValue()) {
+                    System.out.printf("%9.1fms", t / 1e6);
+                }
+                System.out.printf("%8.2f %6.2f %s%n", k, bound, ok ? "" : "SUPERLINEAR");
+            }
+        }
+        System.out.println(failed ? "\nFAILED" : "\nOK");
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Fit time = c * n^k by least squares on log-log scale.
+     *
+     * @param sizes problem sizes, at least two distinct
+     * @param times times measured at those sizes, positive
+     * @return the fitted exponent k
+     */
+    static double fitExponent(int[] sizes, double[] times) {
+        int m = sizes.length;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int i = 0; i < m; i++) {
+            double x = Math.log(sizes[i]);
+            double y = Math.log(Math.max(times[i], 1));
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        return (m * sxy - sx * sy) / (m * sxx - sx * sx);
+    }
+
+    /**
+     * Run the operation mix against every implementation.
+     *
+     * @return results by implementation name, in IMPLEMENTATIONS order
+     */
+    static Map<String, Result> run(SyntheticGraphs.Distribution distribution, int n, long seed, int repeat) {
+        List<WeightedEdge<String>> edges = SyntheticGraphs.edges(distribution, Math.max(1, n / 4), n, seed);
+        String[] words = SyntheticGraphs.corpus(distribution, Math.max(1, n / 4), n, seed + 1).split("\\s+");
+        Random random = new Random(seed + 2);
+        String[] queries = new String[n];
+        for (int i = 0; i < n; i++) {
+            queries[i] = SyntheticGraphs.label(random.nextInt(Math.max(1, n / 4)));
+        }
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<Graph<String>>> impl : IMPLEMENTATIONS.entrySet()) {
+            Result best = null;
+            for (int r = 0; r < repeat; r++) {
+                // keep collections of earlier runs out of this measurement
+                System.gc();
+                Result result = workload(impl.getValue(), edges, words, queries);
+                if (best == null) {
+                    best = result;
+                } else {
+                    for (int op = 0; op < OPERATIONS.length; op++) {
+                        best.nanos[op] = Math.min(best.nanos[op], result.nanos[op]);
+                    }
+                }
+            }
+            results.put(impl.getKey(), best);
+        }
+        return results;
+    }
+
+    private static Result workload(Supplier<Graph<String>> factory, List<WeightedEdge<String>> edges,
+            String[] words, String[] queries) {
+        Result result = new Result();
+        long start;
+
+        Graph<String> graph = factory.get();
+        start = System.nanoTime();
+        for (WeightedEdge<String> edge : edges) {
+            graph.set(edge.getSource(), edge.getTarget(), edge.getWeight());
+        }
+        result.nanos[0] = System.nanoTime() - start;
+
+        Graph<String> bigrams = factory.get();
+        start = System.nanoTime();
+        for (int i = 0; i < words.length - 1; i++) {
+            int weight = bigrams.targets(words[i]).getOrDefault(words[i + 1], 0) + 1;
+            bigrams.set(words[i], words[i + 1], weight);
+        }
+        result.nanos[1] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int pass = 0; pass < LOOKUP_PASSES; pass++) {
+            for (String query : queries) {
+                result.lookups += graph.targets(query).size();
+            }
+        }
+        result.nanos[2] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int pass = 0; pass < LOOKUP_PASSES; pass++) {
+            for (String query : queries) {
+                result.lookups += 31L * graph.sources(query).size();
+            }
+        }
+        result.nanos[3] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (WeightedEdge<String> edge : edges) {
+            graph.set(edge.getSource(), edge.getTarget(), edge.getWeight() % 7 + 1);
+        }
+        result.nanos[4] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < queries.length / 20; i++) {
+            graph.remove(queries[i]);
+        }
+        result.nanos[5] = System.nanoTime() - start;
+
+        result.graph = fingerprint(graph);
+        result.bigrams = fingerprint(bigrams);
+        return result;
+    }
+
+    /**
+     * @return an order-independent hash of the vertices and edges of graph
+     */
+    static long fingerprint(Graph<String> graph) {
+        long hash = 0;
+        for (String vertex : graph.vertices()) {
+            hash += vertex.hashCode() * 0x9E3779B97F4A7C15L;
+            for (Map.Entry<String, Integer> edge : graph.targets(vertex).entrySet()) {
+                hash += ((long) vertex.hashCode() << 32 ^ edge.getKey().hashCode()) * 31 + edge.getValue();
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Timings and observations of one run of the operation mix.
+     */
+    static final class Result {
+        final long[] nanos = new long[OPERATIONS.length];
+        long lookups = 0;
+        long graph;
+        long bigrams;
+
+        boolean agrees(Result that) {
+            return lookups == that.lookups && graph == that.graph && bigrams == that.bigrams;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class GraphScaleHarnessTest {
+
+    // Testing strategy
+    //   SyntheticGraphs: each Distribution; same seed gives same output;
+    //     labels drawn from the requested vertex count
+    //   fitExponent(): linear, quadratic, constant curves
+    //   run(): every implementation agrees on each Distribution at a small size
+    //   (timings are not checked here; see GraphScaleHarness.main)
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testSyntheticGraphsDeterministic() {
+        for (SyntheticGraphs.Distribution distribution : SyntheticGraphs.Distribution.values()) {
+            List<WeightedEdge<String>> edges = SyntheticGraphs.edges(distribution, 50, 400, 7);
+            assertEquals(400, edges.size());
+            assertEquals(edges, SyntheticGraphs.edges(distribution, 50, 400, 7));
+            for (WeightedEdge<String> edge : edges) {
+                int source = Integer.parseInt(edge.getSource().substring(1));
+                assertTrue(0 <= source && source < 50);
+                assertTrue(1 <= edge.getWeight() && edge.getWeight() <= 100);
+            }
+            String corpus = SyntheticGraphs.corpus(distribution, 50, 400, 7);
+            assertEquals(400, corpus.trim().split("\\s+").length);
+            assertEquals(corpus, SyntheticGraphs.corpus(distribution, 50, 400, 7));
+        }
+    }
+
+    @Test
+    public void testZipfSkewed() {
+        List<WeightedEdge<String>> edges = SyntheticGraphs.edges(SyntheticGraphs.Distribution.ZIPF, 100, 2000, 1);
+        int first = 0, last = 0;
+        for (WeightedEdge<String> edge : edges) {
+            first += edge.getSource().equals(SyntheticGraphs.label(0)) ? 1 : 0;
+            last += edge.getSource().equals(SyntheticGraphs.label(99)) ? 1 : 0;
+        }
+        assertTrue("rank 1 should be drawn far more often than rank 100", first > 10 * Math.max(1, last));
+    }
+
+    @Test
+    public void testFitExponent() {
+        int[] sizes = { 1000, 2000, 4000, 8000 };
+        double[] linear = new double[sizes.length];
+        double[] quadratic = new double[sizes.length];
+        double[] constant = new double[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            linear[i] = 5.0 * sizes[i];
+            quadratic[i] = 0.5 * sizes[i] * sizes[i];
+            constant[i] = 1e6;
+        }
+        assertEquals(1.0, GraphScaleHarness.fitExponent(sizes, linear), 1e-9);
+        assertEquals(2.0, GraphScaleHarness.fitExponent(sizes, quadratic), 1e-9);
+        assertEquals(0.0, GraphScaleHarness.fitExponent(sizes, constant), 1e-9);
+    }
+
+    @Test
+    public void testImplementationsAgree() {
+        for (SyntheticGraphs.Distribution distribution : SyntheticGraphs.Distribution.values()) {
+            Map<String, GraphScaleHarness.Result> results = GraphScaleHarness.run(distribution, 800, 3, 1);
+            assertEquals(GraphScaleHarness.IMPLEMENTATIONS.keySet(), results.keySet());
+            GraphScaleHarness.Result reference = results.values().iterator().next();
+            for (Map.Entry<String, GraphScaleHarness.Result> result : results.entrySet()) {
+                assertTrue(result.getKey() + " disagrees on " + distribution, reference.agrees(result.getValue()));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class GraphStatsTest {
+
+    // Testing strategy
+    //   representation: ConcreteEdgesGraph, ConcreteVerticesGraph
+    //   graph: empty, isolated vertex, hub with several edges
+    //   weights: one bucket, several power-of-two buckets
+    //   heap estimate: grows with the graph
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static List<Graph<String>> emptyGraphs() {
+        return Arrays.<Graph<String>>asList(new ConcreteEdgesGraph(), new ConcreteVerticesGraph());
+    }
+
+    @Test
+    public void testEmptyGraph() {
+        for (Graph<String> graph : emptyGraphs()) {
+            GraphStats stats = GraphStats.of(graph);
+            assertEquals(0, stats.vertexCount());
+            assertEquals(0, stats.edgeCount());
+            assertTrue(stats.outDegreeHistogram().isEmpty());
+            assertEquals(0, stats.minWeight());
+            assertEquals(0.0, stats.meanWeight(), 0);
+            assertTrue("estimate covers the empty structures", stats.estimatedHeapBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testHubGraph() {
+        for (Graph<String> graph : emptyGraphs()) {
+            graph.add("hub");
+            graph.add("x");
+            graph.add("y");
+            graph.add("z");
+            graph.set("hub", "x", 1);
+            graph.set("hub", "y", 3);
+            graph.set("hub", "z", 9);
+            graph.set("x", "y", 2);
+            long before = GraphStats.of(graph).estimatedHeapBytes();
+            graph.add("lonely");
+
+            GraphStats stats = GraphStats.of(graph);
+            assertEquals(5, stats.vertexCount());
+            assertEquals(4, stats.edgeCount());
+
+            SortedMap<Integer, Integer> out = new TreeMap<>();
+            out.put(0, 3);
+            out.put(1, 1);
+            out.put(3, 1);
+            assertEquals(out, stats.outDegreeHistogram());
+            SortedMap<Integer, Integer> in = new TreeMap<>();
+            in.put(0, 2);
+            in.put(1, 2);
+            in.put(2, 1);
+            assertEquals(in, stats.inDegreeHistogram());
+
+            SortedMap<Integer, Long> weights = new TreeMap<>();
+            weights.put(1, 1L);
+            weights.put(2, 2L);
+            weights.put(8, 1L);
+            assertEquals(weights, stats.weightHistogram());
+            assertEquals(1, stats.minWeight());
+            assertEquals(9, stats.maxWeight());
+            assertEquals(15, stats.totalWeight());
+            assertTrue("another vertex retains more heap", stats.estimatedHeapBytes() > before);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class GraphViewTest {
+
+    // Testing strategy
+    //   view: reversed, filtered by weight (edges below, at, above the bound),
+    //     filtered by edge, induced subgraph, a view of a view
+    //   underlying graph: changed after the view is made, or not
+    //   materialize(): equal to the view, unaffected by later changes
+    //   mutators: always throw
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static Graph<String> sample() {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 5);
+        graph.set("b", "c", 3);
+        graph.set("c", "a", 2);
+        graph.add("d");
+        return graph;
+    }
+
+    @Test
+    public void testReversed() {
+        Graph<String> graph = sample();
+        GraphView<String> reversed = GraphView.reversed(graph);
+        assertEquals(graph.vertices(), reversed.vertices());
+        assertEquals(graph.sources("c"), reversed.targets("c"));
+        assertEquals(graph.targets("a"), reversed.sources("a"));
+    }
+
+    @Test
+    public void testHeavierThanIsLazy() {
+        Graph<String> graph = sample();
+        GraphView<String> heavy = GraphView.heavierThan(graph, 3);
+        assertEquals(Collections.singletonMap("c", 5), heavy.targets("a"));
+        assertFalse(heavy.targets("a").containsKey("b"));
+        assertEquals("b -> c weighs exactly 3", Collections.singleton("a"), heavy.sources("c").keySet());
+
+        graph.set("a", "b", 4);
+        assertEquals("view reflects later changes", (Integer) 4, heavy.targets("a").get("b"));
+    }
+
+    @Test
+    public void testFilteredByEdge() {
+        GraphView<String> noLoops = GraphView.filtered(sample(),
+                (source, target, weight) -> !target.equals("a"));
+        assertTrue(noLoops.targets("c").isEmpty());
+        assertTrue(noLoops.sources("a").isEmpty());
+        assertEquals(2, noLoops.targets("a").size());
+    }
+
+    @Test
+    public void testInducedSubgraph() {
+        GraphView<String> sub = GraphView.induced(sample(), v -> !v.equals("b"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "c", "d")), sub.vertices());
+        assertFalse(sub.vertices().contains("b"));
+        assertEquals(Collections.singletonMap("c", 5), sub.targets("a"));
+        assertEquals(Collections.singletonMap("a", 5), sub.sources("c"));
+        assertTrue(sub.targets("b").isEmpty());
+    }
+
+    @Test
+    public void testViewOfView() {
+        GraphView<String> view = GraphView.reversed(GraphView.induced(sample(), v -> !v.equals("a")));
+        assertEquals(Collections.singletonMap("b", 3), view.targets("c"));
+    }
+
+    @Test
+    public void testMaterialize() {
+        Graph<String> graph = sample();
+        GraphView<String> view = GraphView.heavierThan(graph, 2);
+        Graph<String> copy = view.materialize();
+        graph.set("a", "d", 9);
+
+        assertEquals(graph.vertices(), copy.vertices());
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("c", 5);
+        assertEquals(expected, copy.targets("a"));
+        assertEquals((Integer) 3, copy.sources("c").get("b"));
+        assertEquals(2, copy.sources("c").size());
+        assertNull(copy.targets("a").get("nonexistent"));
+        assertTrue(copy.targets("nonexistent").isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewIsReadOnly() {
+        GraphView.reversed(sample()).set("a", "b", 1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testMaterializedIsImmutable() {
+        GraphView.reversed(sample()).materialize().add("e");
+    }
+}
@@ -0,0 +1,203 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LabelWeightTableTest {
+
+    // Testing strategy
+    //   put: new key, existing key, key that forces growth
+    //   get, remove: present, absent, null, on a table with no arrays yet
+    //   remove: from the middle of a probe run whose later keys must shift
+    //     back, and from a run that wraps past the last slot
+    //   random operations: agree with HashMap
+    //   asMap(): same object on every call, read-only, live; iterator fails
+    //     fast on removal or insertion, not on reweighting
+    //   top(k): k = 0, k < size, k > size, negative k, empty table; ties
+    //     broken by key; agrees with sorting every entry
+    //   estimatedHeapBytes(): below the HashMap<String, Integer> estimate
+    //     for the same entries
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        LabelWeightTable table = new LabelWeightTable(10);
+        assertEquals(0, table.size());
+        assertEquals("no arrays before the first put", 0, table.capacity());
+        assertEquals(0, table.get("a"));
+        assertEquals(0, table.get(null));
+        assertEquals(0, table.remove("a"));
+        assertTrue(table.asMap().isEmpty());
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        LabelWeightTable table = new LabelWeightTable(0);
+        assertEquals(0, table.put("a", 3));
+        assertEquals(3, table.put("a", 5));
+        assertEquals(0, table.put("b", 1));
+        assertEquals(2, table.size());
+        assertEquals(5, table.get("a"));
+        assertEquals(0, table.get("c"));
+        assertEquals(5, table.remove("a"));
+        assertEquals(0, table.remove("a"));
+        assertEquals(1, table.size());
+        assertEquals(1, table.get("b"));
+    }
+
+    @Test
+    public void testGrowthKeepsEntries() {
+        LabelWeightTable table = new LabelWeightTable(0);
+        for (int i = 0; i < 1000; i++) {
+            table.put("v" + i, i + 1);
+        }
+        assertEquals(1000, table.size());
+        assertTrue("load stays below 3/4", table.size() < table.capacity() / 4 * 3);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + 1, table.get("v" + i));
+        }
+    }
+
+    @Test
+    public void testRemoveShiftsCollidingKeys() {
+        // fill most of a small table so probe runs are long and wrap around
+        LabelWeightTable table = new LabelWeightTable(24);
+        int capacity = -1;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add("k" + i);
+            table.put("k" + i, i + 1);
+            capacity = table.capacity();
+        }
+        assertEquals("no growth while filling", capacity, table.capacity());
+        for (int i = 0; i < 20; i += 2) {
+            assertEquals(i + 1, table.remove(keys.get(i)));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(keys.get(i), i % 2 == 0 ? 0 : i + 1, table.get(keys.get(i)));
+        }
+    }
+
+    @Test
+    public void testRandomOperationsAgreeWithHashMap() {
+        Random random = new Random(38);
+        LabelWeightTable table = new LabelWeightTable(0);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int op = 0; op < 20_000; op++) {
+            String key = "w" + random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                Integer previous = expected.remove(key);
+                assertEquals(previous == null ? 0 : previous, table.remove(key));
+            } else {
+                int weight = 1 + random.nextInt(1000);
+                Integer previous = expected.put(key, weight);
+                assertEquals(previous == null ? 0 : previous, table.put(key, weight));
+            }
+        }
+        assertEquals(expected, table.asMap());
+        assertEquals(expected.size(), table.size());
+    }
+
+    @Test
+    public void testTopOrdersByWeightThenKey() {
+        LabelWeightTable table = new LabelWeightTable(0);
+        assertTrue(table.top(3).isEmpty());
+        table.put("c", 5);
+        table.put("a", 5);
+        table.put("b", 9);
+        table.put("d", 1);
+        assertEquals(Arrays.asList("b", "a", "c"), new ArrayList<>(table.top(3).keySet()));
+        assertEquals(Integer.valueOf(5), table.top(2).get("a"));
+        assertEquals(4, table.top(10).size());
+        assertTrue(table.top(0).isEmpty());
+        try {
+            table.top(-1);
+            fail("k must be nonnegative");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTopAgreesWithSorting() {
+        Random random = new Random(26);
+        LabelWeightTable table = new LabelWeightTable(0);
+        for (int i = 0; i < 2_000; i++) {
+            table.put("w" + random.nextInt(1500), 1 + random.nextInt(50));
+        }
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(new HashMap<>(table.asMap()).entrySet());
+        sorted.sort((x, y) -> !x.getValue().equals(y.getValue())
+                ? y.getValue() - x.getValue() : x.getKey().compareTo(y.getKey()));
+        for (int k : new int[] { 1, 7, 100, sorted.size() }) {
+            List<Map.Entry<String, Integer>> top = new ArrayList<>(table.top(k).entrySet());
+            assertEquals("k = " + k, sorted.subList(0, k), top);
+        }
+    }
+
+    @Test
+    public void testAsMapIsSharedLiveView() {
+        LabelWeightTable table = new LabelWeightTable(0);
+        Map<String, Integer> view = table.asMap();
+        assertSame(view, table.asMap());
+        table.put("a", 2);
+        assertEquals(1, view.size());
+        assertEquals(Integer.valueOf(2), view.get("a"));
+        assertNull(view.get("b"));
+        assertTrue(view.containsKey("a"));
+        try {
+            view.put("b", 1);
+            fail("view must be read-only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            view.entrySet().iterator().next().setValue(5);
+            fail("entries must be read-only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(2, table.get("a"));
+    }
+
+    @Test
+    public void testEstimateBelowHashMap() {
+        LabelWeightTable table = new LabelWeightTable(0);
+        for (int i = 0; i < 500; i++) {
+            table.put("v" + i, 1 + i);
+        }
+        long hashMap = LabelWeightTable.hashMapHeapBytes(table.size(), table.asMap().values());
+        assertTrue(table.estimatedHeapBytes() + " vs " + hashMap, 2 * table.estimatedHeapBytes() < hashMap);
+    }
+
+    @Test
+    public void testIteratorFailsFastOnRemove() {
+        LabelWeightTable table = new LabelWeightTable(0);
+        for (int i = 0; i < 100; i++) {
+            table.put("v" + i, 1 + i % 3);
+        }
+        Iterator<Map.Entry<String, Integer>> entries = table.asMap().entrySet().iterator();
+        table.put(entries.next().getKey(), 7);
+        entries.next(); // reweighting an entry moves nothing
+        table.remove(entries.next().getKey());
+        try {
+            entries.next();
+            fail("removal during iteration must be detected");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+}
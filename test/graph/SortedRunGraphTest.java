@@ -0,0 +1,203 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SortedRunGraphTest extends GraphInstanceTest {
+
+    // Testing strategy
+    //   GraphInstanceTest with a memtable of 4 and at most 2 runs, so the
+    //     shared tests cross flushes and background compactions
+    //   set(): edge pending in memtable, in a run, in several runs; removal
+    //     tombstone over a run; self-loop on a new vertex
+    //   remove(): vertex with edges in runs; re-added vertex has no old edges
+    //   targets(), sources(): point lookups, read-only
+    //   flush(), compact(): run counts; reads unchanged
+    //   Run.merge(): many overlapping runs, newest weight wins, tombstones
+    //     kept or dropped, edges of retired ids dropped
+    //   random operation mix agrees with ConcreteVerticesGraph
+    //   stats(): heap estimate present; degrees and weights agree with
+    //     ConcreteVerticesGraph over runs, memtable, tombstones, removals
+    //   views: copy reused until the graph changes, then refreshed
+
+    @Override
+    public Graph<String> emptyInstance() {
+        return new SortedRunGraph(4, 2);
+    }
+
+    @Test
+    public void testReadsAcrossRuns() {
+        SortedRunGraph graph = new SortedRunGraph(100, 100);
+        graph.set("A", "B", 1);
+        graph.flush();
+        graph.set("A", "C", 2);
+        graph.flush();
+        graph.set("A", "B", 3);
+        assertEquals(2, graph.runCount());
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("B", 3);
+        expected.put("C", 2);
+        assertEquals(expected, graph.targets("A"));
+        assertEquals(Collections.singletonMap("A", 3), graph.sources("B"));
+        assertEquals("previous weight is read from the newest copy", 3, graph.set("A", "B", 4));
+    }
+
+    @Test
+    public void testTombstoneHidesOlderRun() {
+        SortedRunGraph graph = new SortedRunGraph(100, 100);
+        graph.set("A", "B", 5);
+        graph.flush();
+        assertEquals(5, graph.set("A", "B", 0));
+        assertEquals(Collections.emptyMap(), graph.targets("A"));
+        graph.flush();
+        assertEquals(Collections.emptyMap(), graph.sources("B"));
+        graph.compact();
+        assertEquals("merged run holds no tombstones", 0, graph.runCount());
+        assertEquals(2, graph.vertices().size());
+    }
+
+    @Test
+    public void testRemoveThenReAdd() {
+        SortedRunGraph graph = new SortedRunGraph(100, 100);
+        graph.set("A", "B", 1);
+        graph.set("C", "A", 2);
+        graph.flush();
+        graph.set("A", "C", 3);
+        assertTrue(graph.remove("A"));
+        assertEquals(Collections.emptyMap(), graph.targets("C"));
+        assertEquals(Collections.emptyMap(), graph.sources("B"));
+        assertTrue(graph.add("A"));
+        assertEquals("old edges stay gone", Collections.emptyMap(), graph.targets("A"));
+        assertEquals(Collections.emptyMap(), graph.sources("A"));
+        graph.compact();
+        assertEquals(0, graph.runCount());
+    }
+
+    @Test
+    public void testSelfLoopOnNewVertex() {
+        SortedRunGraph graph = new SortedRunGraph(100, 100);
+        assertEquals(0, graph.set("A", "A", 2));
+        assertEquals(Collections.singleton("A"), graph.vertices());
+        assertEquals(Collections.singletonMap("A", 2), graph.targets("A"));
+        assertEquals(Collections.singletonMap("A", 2), graph.sources("A"));
+    }
+
+    @Test
+    public void testBackgroundCompaction() {
+        SortedRunGraph graph = new SortedRunGraph(2, 2);
+        for (int i = 0; i < 40; i++) {
+            graph.set("v" + i, "v" + (i + 1), i + 1);
+        }
+        graph.compact();
+        assertEquals(1, graph.runCount());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(Collections.singletonMap("v" + (i + 1), i + 1), graph.targets("v" + i));
+        }
+    }
+
+    @Test
+    public void testMergeManyRuns() {
+        SortedRunGraph.Run[] runs = {
+            new SortedRunGraph.Run(new int[] { 0, 0, 1 }, new int[] { 1, 2, 2 }, new int[] { 1, 1, 1 }),
+            new SortedRunGraph.Run(new int[] { 0, 2 }, new int[] { 1, 0 }, new int[] { 2, 1 }),
+            new SortedRunGraph.Run(new int[] {}, new int[] {}, new int[] {}),
+            new SortedRunGraph.Run(new int[] { 0, 3 }, new int[] { 2, 0 }, new int[] { 0, 4 }),
+            new SortedRunGraph.Run(new int[] { 0, 1 }, new int[] { 1, 2 }, new int[] { 3, 5 }),
+        };
+        BitSet retired = new BitSet();
+        retired.set(3);
+
+        SortedRunGraph.Run merged = SortedRunGraph.Run.merge(runs, retired, false);
+        assertArrayEquals(new int[] { 0, 0, 1, 2 }, merged.sources);
+        assertArrayEquals(new int[] { 1, 2, 2, 0 }, merged.targets);
+        assertArrayEquals("newest weights, tombstone kept", new int[] { 3, 0, 5, 1 }, merged.weights);
+
+        SortedRunGraph.Run oldest = SortedRunGraph.Run.merge(runs, retired, true);
+        assertArrayEquals(new int[] { 0, 1, 2 }, oldest.sources);
+        assertArrayEquals(new int[] { 1, 2, 0 }, oldest.targets);
+        assertArrayEquals("tombstone dropped", new int[] { 3, 5, 1 }, oldest.weights);
+    }
+
+    @Test
+    public void testAgreesWithVerticesGraph() {
+        Random random = new Random(11);
+        SortedRunGraph graph = new SortedRunGraph(8, 3);
+        Graph<String> reference = new ConcreteVerticesGraph();
+        for (int step = 0; step < 3000; step++) {
+            String a = "v" + random.nextInt(30);
+            String b = "v" + random.nextInt(30);
+            int op = random.nextInt(20);
+            if (op == 0) {
+                assertEquals(reference.remove(a), graph.remove(a));
+            } else if (op == 1) {
+                assertEquals(reference.add(a), graph.add(a));
+            } else {
+                int weight = op < 6 ? 0 : random.nextInt(5) + 1;
+                assertEquals(reference.set(a, b, weight), graph.set(a, b, weight));
+            }
+            if (step % 100 == 0) {
+                graph.compact();
+            }
+            assertEquals(reference.targets(a), graph.targets(a));
+            assertEquals(reference.sources(b), graph.sources(b));
+        }
+        assertEquals(reference.vertices(), graph.vertices());
+        // stats() counts degrees in one pass over runs, memtable and tombstones
+        GraphStats expected = GraphStats.of(reference);
+        GraphStats actual = GraphStats.of(graph);
+        assertEquals(expected.edgeCount(), actual.edgeCount());
+        assertEquals(expected.outDegreeHistogram(), actual.outDegreeHistogram());
+        assertEquals(expected.inDegreeHistogram(), actual.inDegreeHistogram());
+        assertEquals(expected.weightHistogram(), actual.weightHistogram());
+    }
+
+    @Test
+    public void testViewCopyFollowsChanges() {
+        SortedRunGraph graph = new SortedRunGraph(2, 2);
+        graph.set("A", "B", 1);
+        Map<String, Integer> targets = graph.targets("A");
+        assertEquals(1, targets.size());
+        assertEquals(Collections.singletonMap("B", 1), targets);
+        graph.set("A", "C", 2);
+        assertEquals(2, targets.size());
+        graph.remove("B");
+        assertEquals(Collections.singletonMap("C", 2), targets);
+        graph.compact();
+        assertEquals("compaction changes no contents", Collections.singletonMap("C", 2), targets);
+    }
+
+    @Test
+    public void testStats() {
+        SortedRunGraph graph = new SortedRunGraph(2, 4);
+        graph.set("A", "B", 1);
+        graph.set("B", "C", 2);
+        graph.set("C", "A", 3);
+        GraphStats stats = GraphStats.of(graph);
+        assertEquals("SortedRunGraph", stats.representation());
+        assertEquals(3, stats.vertexCount());
+        assertEquals(3, stats.edgeCount());
+        assertTrue(stats.estimatedHeapBytes() > 0);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testTargetsReadOnly() {
+        SortedRunGraph graph = new SortedRunGraph(100, 100);
+        graph.set("A", "B", 1);
+        Map<String, Integer> targets = graph.targets("A");
+        assertEquals(Integer.valueOf(1), targets.get("B"));
+        assertNull(targets.get("C"));
+        targets.put("C", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroMemtable() {
+        new SortedRunGraph(0, 1);
+    }
+}
@@ -0,0 +1,155 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generators of synthetic graphs and corpora for scale tests.
+ */
+public class SyntheticGraphs {
+
+    /**
+     * How edge endpoints are drawn.
+     */
+    public enum Distribution {
+        /** every vertex equally likely */
+        UNIFORM,
+        /** vertex of rank r drawn with probability proportional to 1/r */
+        ZIPF,
+        /** preferential attachment: vertices drawn in proportion to their degree so far */
+        POWER_LAW
+    }
+
+    private SyntheticGraphs() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * Generate the edges of a synthetic graph. Later edges between the same
+     * pair of vertices replace earlier ones when applied with set().
+     *
+     * @param distribution how endpoints are drawn
+     * @param vertices number of distinct vertex labels to draw from, positive
+     * @param edges number of edges to generate
+     * @param seed random seed
+     * @return the generated edges, with weights in 1..100
+     */
+    public static List<WeightedEdge<String>> edges(Distribution distribution, int vertices, int edges, long seed) {
+        Random random = new Random(seed);
+        Sampler sampler = sampler(distribution, vertices, random);
+        List<WeightedEdge<String>> result = new ArrayList<>(edges);
+        for (int i = 0; i < edges; i++) {
+            int source = sampler.next();
+            int target = sampler.next();
+            sampler.observe(source);
+            sampler.observe(target);
+            result.add(new WeightedEdge<>(label(source), label(target), 1 + random.nextInt(100)));
+        }
+        return result;
+    }
+
+    /**
+     * Generate a corpus of space-separated words.
+     *
+     * @param distribution how words are drawn
+     * @param vocabulary number of distinct words to draw from, positive
+     * @param tokens number of words in the corpus
+     * @param seed random seed
+     * @return the corpus text
+     */
+    public static String corpus(Distribution distribution, int vocabulary, int tokens, long seed) {
+        Random random = new Random(seed);
+        Sampler sampler = sampler(distribution, vocabulary, random);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            int word = sampler.next();
+            sampler.observe(word);
+            text.append(label(word)).append(i % 12 == 11 ? '\n' : ' ');
+        }
+        return text.toString();
+    }
+
+    /**
+     * @param id vertex number
+     * @return label of the vertex numbered id
+     */
+    public static String label(int id) {
+        return "w" + id;
+    }
+
+    private static Sampler sampler(Distribution distribution, int n, Random random) {
+        switch (distribution) {
+        case UNIFORM:
+            return new Sampler() {
+                @Override public int next() { return random.nextInt(n); }
+            };
+        case ZIPF:
+            return new ZipfSampler(n, random);
+        case POWER_LAW:
+            return new PreferentialSampler(n, random);
+        default:
+            throw new IllegalArgumentException("unknown distribution " + distribution);
+        }
+    }
+
+    private interface Sampler {
+        int next();
+
+        default void observe(int drawn) { }
+    }
+
+    private static final class ZipfSampler implements Sampler {
+        private final double[] cdf;
+        private final Random random;
+
+        ZipfSampler(int n, Random random) {
+            this.random = random;
+            this.cdf = new double[n];
+            double sum = 0;
+            for (int r = 0; r < n; r++) {
+                sum += 1.0 / (r + 1);
+                cdf[r] = sum;
+            }
+            for (int r = 0; r < n; r++) {
+                cdf[r] /= sum;
+            }
+        }
+
+        @Override
+        public int next() {
+            int i = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(cdf.length - 1, i >= 0 ? i : -i - 1);
+        }
+    }
+
+    private static final class PreferentialSampler implements Sampler {
+        private final int n;
+        private final Random random;
+        private int[] endpoints = new int[1024];
+        private int size = 0;
+
+        PreferentialSampler(int n, Random random) {
+            this.n = n;
+            this.random = random;
+        }
+
+        @Override
+        public int next() {
+            // a uniform draw now and then keeps every vertex reachable
+            if (size == 0 || random.nextInt(10) == 0) {
+                return random.nextInt(n);
+            }
+            return endpoints[random.nextInt(size)];
+        }
+
+        @Override
+        public void observe(int drawn) {
+            if (size == endpoints.length) {
+                endpoints = Arrays.copyOf(endpoints, size * 2);
+            }
+            endpoints[size++] = drawn;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark of top-k neighbor queries on hub vertices, comparing
+ * topTargets() against copying targets() and sorting it on every call.
+ * ConcreteEdgesGraph answers from rankings it keeps sorted on every set();
+ * ConcreteVerticesGraph keeps nothing sorted and selects with a bounded heap
+ * per query.
+ *
+ * <p>Run with: java -cp bin graph.TopNeighborsBenchmark [hubDegree] [k]
+ */
+public class TopNeighborsBenchmark {
+
+    private static final int QUERIES = 2_000;
+
+    public static void main(String[] args) {
+        int hubDegree = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        run("ConcreteEdgesGraph", new ConcreteEdgesGraph(), hubDegree, k);
+        run("ConcreteVerticesGraph", new ConcreteVerticesGraph(), hubDegree, k);
+    }
+
+    private static void run(String name, Graph<String> graph, int hubDegree, int k) {
+        for (int i = 0; i < hubDegree; i++) {
+            graph.set("hub", "w" + i, 1 + (i * 7919) % 1000);
+        }
+
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int q = 0; q < QUERIES; q++) {
+            sink += copyAndSort(graph.targets("hub"), k).size();
+        }
+        long copyNanos = System.nanoTime() - start;
+
+        long topNanos = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            start = System.nanoTime();
+            sink += topTargets(graph, k).size();
+            topNanos += System.nanoTime() - start;
+            // keep the ranking moving, as autocomplete training does, outside
+            // the timed region so only the query is measured
+            graph.set("hub", "w" + q, 1 + q % 1000);
+        }
+
+        System.out.printf("%-22s degree=%d k=%d  copy+sort %8.1f us/query  topTargets %6.2f us/query  (%d)%n",
+                name, hubDegree, k, copyNanos / 1e3 / QUERIES, topNanos / 1e3 / QUERIES, sink);
+    }
+
+    private static Map<String, Integer> topTargets(Graph<String> graph, int k) {
+        if (graph instanceof ConcreteEdgesGraph) {
+            return ((ConcreteEdgesGraph) graph).topTargets("hub", k);
+        }
+        return ((ConcreteVerticesGraph) graph).topTargets("hub", k);
+    }
+
+    private static List<Map.Entry<String, Integer>> copyAndSort(Map<String, Integer> targets, int k) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(targets.entrySet());
+        entries.sort((a, b) -> b.getValue() - a.getValue());
+        return entries.subList(0, Math.min(k, entries.size()));
+    }
+}
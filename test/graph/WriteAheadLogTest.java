@@ -0,0 +1,173 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WriteAheadLogTest {
+
+    // Testing strategy
+    //   sync policy: EVERY_RECORD, GROUP_COMMIT, NEVER
+    //   recovery from: log only, snapshot only, snapshot plus later log,
+    //     log with a torn last record, empty directory
+    //   periodic snapshots: by record count, by interval, turned off
+    //   events: vertex added, edge added/reweighted/removed, vertex removed
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testRecoverFromEmptyDirectory() throws IOException {
+        ConcreteEdgesGraph graph = WriteAheadLog.recover(folder.newFolder(), new ConcreteEdgesGraph());
+        assertTrue(graph.vertices().isEmpty());
+    }
+
+    @Test
+    public void testRecoverFromLogOnly() throws IOException {
+        File dir = folder.newFolder();
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.SyncPolicy.EVERY_RECORD, 1, 10)) {
+            graph.addListener(wal);
+            graph.add("lonely");
+            graph.set("A", "B", 3);
+            graph.set("A", "C", 1);
+            graph.set("A", "B", 5);
+            graph.set("A", "C", 0);
+            graph.set("C", "A", 2);
+            graph.remove("C");
+        }
+
+        ConcreteVerticesGraph recovered = WriteAheadLog.recover(dir, new ConcreteVerticesGraph());
+        assertEquals(new HashSet<>(Arrays.asList("lonely", "A", "B")), recovered.vertices());
+        assertEquals(graph.targets("A"), recovered.targets("A"));
+    }
+
+    @Test
+    public void testRecoverFromSnapshotAndLaterLog() throws IOException {
+        File dir = folder.newFolder();
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.SyncPolicy.GROUP_COMMIT, 4, 5)) {
+            graph.addListener(wal);
+            graph.set("A", "B", 1);
+            graph.set("B", "C", 2);
+            wal.snapshot(graph);
+            assertEquals("log is truncated by a snapshot", 0, new File(dir, WriteAheadLog.LOG_FILE).length());
+            graph.set("C", "A", 4);
+            graph.remove("B");
+        }
+
+        ConcreteEdgesGraph recovered = WriteAheadLog.recover(dir, new ConcreteEdgesGraph());
+        assertEquals(graph.vertices(), recovered.vertices());
+        assertEquals(graph.targets("C"), recovered.targets("C"));
+        assertTrue(recovered.targets("A").isEmpty());
+    }
+
+    @Test
+    public void testReopenedLogContinuesSequence() throws IOException {
+        File dir = folder.newFolder();
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.SyncPolicy.NEVER, 8, 5)) {
+            graph.addListener(wal);
+            graph.set("A", "B", 1);
+            wal.snapshot(graph);
+        }
+        graph = WriteAheadLog.recover(dir, new ConcreteEdgesGraph());
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.SyncPolicy.NEVER, 8, 5)) {
+            assertEquals("A, B, A->B", 3, wal.sequence());
+            graph.addListener(wal);
+            graph.set("A", "B", 7);
+        }
+
+        assertEquals((Integer) 7, WriteAheadLog.recover(dir, new ConcreteEdgesGraph()).targets("A").get("B"));
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws IOException {
+        File dir = folder.newFolder();
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.SyncPolicy.EVERY_RECORD, 1, 10)) {
+            graph.addListener(wal);
+            graph.set("A", "B", 1);
+            graph.set("A", "B", 2);
+        }
+        File log = new File(dir, WriteAheadLog.LOG_FILE);
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        ConcreteEdgesGraph recovered = WriteAheadLog.recover(dir, new ConcreteEdgesGraph());
+        assertEquals("last intact record wins", (Integer) 1, recovered.targets("A").get("B"));
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            assertEquals("torn record is not counted", 3, wal.sequence());
+        }
+    }
+
+    @Test
+    public void testPeriodicSnapshotsByRecordCount() throws IOException {
+        File dir = folder.newFolder();
+        File log = new File(dir, WriteAheadLog.LOG_FILE);
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.SyncPolicy.NEVER, 8, 5)) {
+            graph.addListener(wal);
+            wal.snapshotPeriodically(graph, 10, 0);
+            long longest = 0;
+            for (int i = 0; i < 100; i++) {
+                graph.set("v" + (i % 7), "v" + (i % 5), 1 + i);
+                wal.sync();
+                longest = Math.max(longest, log.length());
+            }
+            assertTrue("snapshot taken", new File(dir, WriteAheadLog.SNAPSHOT_FILE).exists());
+            long longestWithSnapshots = longest;
+            // without the trigger the log keeps growing
+            wal.snapshotPeriodically(null, 0, 0);
+            for (int i = 0; i < 100; i++) {
+                graph.set("v" + (i % 7), "v" + (i % 5), 1 + i);
+            }
+            wal.sync();
+            assertTrue(longestWithSnapshots + " vs " + log.length(), log.length() > 5 * longestWithSnapshots);
+        }
+
+        ConcreteVerticesGraph recovered = WriteAheadLog.recover(dir, new ConcreteVerticesGraph());
+        assertEquals(graph.vertices(), recovered.vertices());
+        for (String vertex : graph.vertices()) {
+            assertEquals(graph.targets(vertex), recovered.targets(vertex));
+        }
+    }
+
+    @Test
+    public void testPeriodicSnapshotsByInterval() throws Exception {
+        File dir = folder.newFolder();
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.SyncPolicy.EVERY_RECORD, 1, 10)) {
+            graph.addListener(wal);
+            wal.snapshotPeriodically(graph, 0, 20);
+            graph.set("A", "B", 1);
+            assertFalse("interval not yet passed", new File(dir, WriteAheadLog.SNAPSHOT_FILE).exists());
+            long before = new File(dir, WriteAheadLog.LOG_FILE).length();
+            Thread.sleep(40);
+            // adding C appends a record that triggers the snapshot, then the edge's record
+            graph.set("B", "C", 2);
+            assertTrue(new File(dir, WriteAheadLog.SNAPSHOT_FILE).exists());
+            assertTrue("log truncated by the snapshot", new File(dir, WriteAheadLog.LOG_FILE).length() < before);
+            graph.set("C", "A", 3);
+        }
+
+        ConcreteEdgesGraph recovered = WriteAheadLog.recover(dir, new ConcreteEdgesGraph());
+        assertEquals(graph.vertices(), recovered.vertices());
+        assertEquals(graph.targets("B"), recovered.targets("B"));
+        assertEquals(graph.targets("C"), recovered.targets("C"));
+    }
+}
@@ -0,0 +1,122 @@
+package poet;
+
+import graph.GraphBuilder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Comparison of GraphPoet.trainApproximate() against exact training on a
+ * corpus with a Zipfian vocabulary, where most word pairs occur once. For
+ * each sketch size and threshold it reports the model's size, the sketch's
+ * error bounds, and how many poems and word-pair bridges differ from the
+ * exact poet's.
+ *
+ * <p>Run with: java -cp bin poet.ApproximateTrainingComparison [corpusWords]
+ */
+public class ApproximateTrainingComparison {
+
+    private static final int VOCABULARY = 50_000;
+    private static final int WORDS_PER_LINE = 12;
+    private static final int INPUTS = 1_000;
+    private static final int[] THRESHOLDS = { 2, 3, 5 };
+    private static final int[] SKETCH_MIB = { 1, 16 };
+
+    public static void main(String[] args) throws IOException {
+        int corpusWords = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        Random random = new Random(40);
+        File corpus = File.createTempFile("zipf-corpus", ".txt");
+        corpus.deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(corpus.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < corpusWords; i++) {
+                out.write(word(random));
+                out.write(i % WORDS_PER_LINE == WORDS_PER_LINE - 1 ? '\n' : ' ');
+            }
+        }
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < INPUTS; i++) {
+            StringBuilder input = new StringBuilder(word(random));
+            for (int w = 1; w < 8; w++) {
+                input.append(' ').append(word(random));
+            }
+            inputs.add(input.toString());
+        }
+
+        long start = System.nanoTime();
+        GraphPoet exact = new GraphPoet(corpus);
+        long exactNanos = System.nanoTime() - start;
+        List<String> exactPoems = exact.poems(inputs);
+        List<String> pairs = pairs(inputs);
+        List<String> exactBridges = exact.poems(pairs);
+        System.out.printf("corpus %d words; exact: %d edges, ~%.1f MiB, trained in %.2f s, %d bridges in %d poems%n",
+                corpusWords, exact.modelStats().edgeCount(), exact.modelStats().estimatedHeapBytes() / 1048576.0,
+                exactNanos / 1e9, bridges(inputs, exactPoems), INPUTS);
+
+        for (int sketchMiB : SKETCH_MIB) {
+            for (int threshold : THRESHOLDS) {
+                compare(corpus, inputs, exactPoems, exactBridges, threshold, sketchMiB << 20);
+            }
+        }
+    }
+
+    private static void compare(File corpus, List<String> inputs, List<String> exactPoems, List<String> exactBridges,
+            int threshold, long sketchBytes) throws IOException {
+        GraphPoet approximate = new GraphPoet(new GraphBuilder()
+                .representation(GraphBuilder.Representation.VERTEX_ADJACENCY));
+        long start = System.nanoTime();
+        SketchReport report = approximate.trainApproximate(corpus, threshold, sketchBytes);
+        long nanos = System.nanoTime() - start;
+        List<String> poems = approximate.poems(inputs);
+        int changed = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            if (!poems.get(i).equals(exactPoems.get(i))) {
+                changed++;
+            }
+        }
+        List<String> bridges = approximate.poems(pairs(inputs));
+        int sameBridges = 0;
+        for (int i = 0; i < bridges.size(); i++) {
+            if (bridges.get(i).equals(exactBridges.get(i))) {
+                sameBridges++;
+            }
+        }
+        System.out.printf("threshold %d, sketch %.0f MiB: %d edges, ~%.1f MiB, trained in %.2f s;"
+                + " %.1f%% of poems changed, %.1f%% of word pairs bridged alike, %d bridges%n",
+                threshold, report.sketchBytes() / 1048576.0, approximate.modelStats().edgeCount(),
+                approximate.modelStats().estimatedHeapBytes() / 1048576.0, nanos / 1e9,
+                100.0 * changed / inputs.size(), 100.0 * sameBridges / bridges.size(), bridges(inputs, poems));
+        System.out.println("  " + report);
+    }
+
+    /** Word of rank r with probability proportional to 1 / r. */
+    private static String word(Random random) {
+        return "w" + (long) Math.exp(random.nextDouble() * Math.log(VOCABULARY));
+    }
+
+    /** Each pair of adjacent words of the inputs; a bigram poet bridges each alone. */
+    private static List<String> pairs(List<String> inputs) {
+        List<String> pairs = new ArrayList<>();
+        for (String input : inputs) {
+            String[] words = input.split(" ");
+            for (int i = 0; i + 1 < words.length; i++) {
+                pairs.add(words[i] + " " + words[i + 1]);
+            }
+        }
+        return pairs;
+    }
+
+    private static long bridges(List<String> inputs, List<String> poems) {
+        long bridges = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            bridges += poems.get(i).split(" ").length - inputs.get(i).split(" ").length;
+        }
+        return bridges;
+    }
+}
@@ -0,0 +1,85 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CountMinSketchTest {
+
+    // Testing strategy
+    //   CountMinSketch: smallest width, illegal width or depth
+    //   forBudget(): exact power-of-two budget, budget between powers, too small
+    //   add(), estimate(): unseen key, one key, skewed stream into a sketch
+    //     much smaller than the number of distinct keys
+    //   error bounds: never below true count; above it by more than
+    //     errorBound() for at most about delta() of the keys
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testSingleKey() {
+        CountMinSketch sketch = new CountMinSketch(16, 2);
+        assertEquals(0, sketch.estimate(42));
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, sketch.add(42));
+        }
+        assertEquals(5, sketch.estimate(42));
+        assertEquals(5, sketch.total());
+    }
+
+    @Test
+    public void testForBudget() {
+        CountMinSketch sketch = CountMinSketch.forBudget(1 << 20);
+        assertEquals(CountMinSketch.DEFAULT_DEPTH, sketch.depth());
+        assertEquals((1 << 20) / 4 / CountMinSketch.DEFAULT_DEPTH, sketch.width());
+        assertTrue(sketch.estimatedHeapBytes() <= (1 << 20) + 64);
+        assertEquals("rounds down to a power of two", 1 << 16, CountMinSketch.forBudget((1 << 20) + (1 << 19)).width());
+        assertEquals(Math.E / sketch.width(), sketch.epsilon(), 1e-12);
+        assertEquals(Math.exp(-CountMinSketch.DEFAULT_DEPTH), sketch.delta(), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBudgetTooSmall() {
+        CountMinSketch.forBudget(255);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWidthNotPowerOfTwo() {
+        new CountMinSketch(48, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoRows() {
+        new CountMinSketch(16, 0);
+    }
+
+    @Test
+    public void testErrorBounds() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        Map<Long, Integer> exact = new HashMap<>();
+        Random random = new Random(40);
+        for (int i = 0; i < 100_000; i++) {
+            // roughly Zipfian: a few heavy keys and a long tail of rare ones
+            long key = (long) Math.floor(Math.exp(random.nextDouble() * Math.log(50_000)));
+            exact.merge(key, 1, Integer::sum);
+            sketch.add(key);
+        }
+        assertEquals(100_000, sketch.total());
+        int beyondBound = 0;
+        for (Map.Entry<Long, Integer> entry : exact.entrySet()) {
+            int estimate = sketch.estimate(entry.getKey());
+            assertTrue("never underestimates", estimate >= entry.getValue());
+            if (estimate - entry.getValue() > sketch.errorBound()) {
+                beyondBound++;
+            }
+        }
+        assertTrue(beyondBound + " of " + exact.size(), beyondBound <= 2 * sketch.delta() * exact.size());
+    }
+}
@@ -1,14 +1,44 @@
 package poet;
 
+import graph.GraphBuilder;
+import graph.GraphStats;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class GraphPoetTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Corpus where "a y b" wins on bigram weight, but only "c a x b" occurs.
+     */
+    private File contextCorpus() throws IOException {
+        File corpus = folder.newFile();
+        Files.write(corpus.toPath(), "c a x b\na y w\na y w\nv y b\nv y b\n".getBytes(StandardCharsets.UTF_8));
+        return corpus;
+    }
+
     @Test(expected = AssertionError.class)
     public void testAssertionsEnabled() {
         assert false; // make sure assertions are enabled with VM argument: -ea
@@ -58,4 +88,326 @@ public class GraphPoetTest {
         String expected = "seek TO Explore strange new life And Exciting Synergies!";
         assertEquals(expected, poet.poem(input));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCachedPoemMatchesUncached() throws IOException {
+        File corpus = new File("test/poet/corpus.txt");
+        GraphPoet poet = new GraphPoet(corpus);
+        PoemCache cache = new PoemCache(8, PoemCache.Policy.LRU);
+        poet.setCache(cache);
+        String expected = "Seek to explore strange new life and exciting synergies!";
+        assertEquals(expected, poet.poem("Seek to explore new and exciting synergies!"));
+        assertEquals(expected, poet.poem("Seek to  explore new and exciting synergies!\n"));
+        assertEquals("whitespace variants should share an entry", 1, cache.stats().hits());
+    }
+
+    @Test
+    public void testPruneInvalidatesCache() throws IOException {
+        File corpus = new File("test/poet/corpus.txt");
+        GraphPoet poet = new GraphPoet(corpus);
+        poet.setCache(new PoemCache(8, PoemCache.Policy.TINY_LFU));
+        assertEquals("explore strange new", poet.poem("explore new"));
+        poet.prune(2);
+        assertEquals("pruned model has no bridge", "explore new", poet.poem("explore new"));
+    }
+
+    @Test
+    public void testPoemRacingPruneIsNotCached() throws Exception {
+        File corpus = new File("test/poet/corpus.txt");
+        GraphPoet poet = new GraphPoet(corpus);
+        CountDownLatch computed = new CountDownLatch(1);
+        CountDownLatch pruned = new CountDownLatch(1);
+        PoemCache cache = new PoemCache(8, PoemCache.Policy.LRU) {
+            @Override
+            public void put(String key, String poem, long generation) {
+                // hold the poem computed from the old model until prune() is done
+                computed.countDown();
+                try {
+                    pruned.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.put(key, poem, generation);
+            }
+        };
+        poet.setCache(cache);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> racing = reader.submit(() -> poet.poem("explore new"));
+            computed.await();
+            poet.prune(2);
+            pruned.countDown();
+            assertEquals("explore strange new", racing.get());
+        } finally {
+            reader.shutdown();
+        }
+        assertEquals("stale poem was not cached", "explore new", poet.poem("explore new"));
+    }
+
+    @Test
+    public void testPruneVertexBackedGraph() throws IOException {
+        // large enough that hints() picks the vertex-adjacency graph, whose
+        // targets() is a live view
+        File corpus = folder.newFile();
+        Random random = new Random(36);
+        StringBuilder text = new StringBuilder();
+        Map<String, Integer> pairs = new HashMap<>();
+        String previous = null;
+        for (int i = 0; i < 3000; i++) {
+            String word = "w" + random.nextInt(200);
+            text.append(word).append(i % 10 == 9 ? '\n' : ' ');
+            if (previous != null) {
+                pairs.merge(previous + " " + word, 1, Integer::sum);
+            }
+            previous = word;
+        }
+        Files.write(corpus.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(GraphBuilder.Representation.VERTEX_ADJACENCY,
+                GraphPoet.hints(corpus.length()).chosenRepresentation());
+
+        GraphPoet poet = new GraphPoet(corpus);
+        poet.prune(2);
+        long kept = pairs.values().stream().filter(count -> count >= 2).count();
+        GraphStats stats = poet.modelStats();
+        assertEquals(kept, stats.edgeCount());
+        assertTrue(stats.minWeight() >= 2);
+    }
+
+    @Test
+    public void testModelStats() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"));
+        GraphStats stats = poet.modelStats();
+        // to explore strange new worlds to seek out new life and "new civilizations"
+        // (the corpus joins the last two words with a no-break space)
+        assertEquals(10, stats.vertexCount());
+        assertEquals(11, stats.edgeCount());
+        assertEquals(11, stats.totalWeight());
+    }
+
+    @Test
+    public void testTrigramUsesPrecedingWord() throws IOException {
+        GraphPoet bigram = new GraphPoet(contextCorpus());
+        GraphPoet trigram = new GraphPoet(contextCorpus(), 3);
+        assertEquals(2, bigram.order());
+        assertEquals(3, trigram.order());
+        assertEquals("C a y B", bigram.poem("C a B"));
+        assertEquals("C a x B", trigram.poem("C a B"));
+    }
+
+    @Test
+    public void testTrigramFallsBackToBigram() throws IOException {
+        GraphPoet trigram = new GraphPoet(contextCorpus(), 3);
+        // w a x and w a y are tied on trigrams; bigram weights decide
+        assertEquals("w a y b", trigram.poem("w a b"));
+        assertEquals("a x b occurs and a y b does not", "a x b", trigram.poem("a b"));
+    }
+
+    @Test
+    public void testTrigramMatchesBigramOnShortCorpus() throws IOException {
+        GraphPoet trigram = new GraphPoet(new File("test/poet/corpus.txt"), 4);
+        assertEquals("Seek to explore strange new life and exciting synergies!",
+                trigram.poem("Seek to explore new and exciting synergies!"));
+    }
+
+    @Test
+    public void testTrigramPrune() throws IOException {
+        GraphPoet trigram = new GraphPoet(contextCorpus(), 3);
+        trigram.prune(2);
+        assertEquals("x dropped with the weight-1 pairs", "c a y b", trigram.poem("c a b"));
+        assertEquals("v y b", trigram.poem("v b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrderTooSmall() throws IOException {
+        new GraphPoet(new File("test/poet/corpus.txt"), 1);
+    }
+
+    @Test
+    public void testHintsFromCorpusSize() {
+        assertEquals(GraphBuilder.Representation.EDGE_LIST, GraphPoet.hints(80).chosenRepresentation());
+        assertEquals(GraphBuilder.Representation.VERTEX_ADJACENCY, GraphPoet.hints(1 << 20).chosenRepresentation());
+        assertEquals(GraphBuilder.Representation.SORTED_RUNS, GraphPoet.hints(100L << 20).chosenRepresentation());
+    }
+
+    @Test
+    public void testSmallCorpusUsesEdgeList() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"));
+        assertEquals("ConcreteEdgesGraph", poet.modelStats().representation());
+    }
+
+    @Test
+    public void testSortedRunsPoetMatchesDefault() throws IOException {
+        File corpus = new File("test/poet/corpus.txt");
+        GraphPoet expected = new GraphPoet(corpus);
+        GraphPoet poet = new GraphPoet(new GraphBuilder().representation(GraphBuilder.Representation.SORTED_RUNS));
+        poet.train(corpus);
+        String input = "Seek to explore new and exciting synergies!";
+        assertEquals(expected.poem(input), poet.poem(input));
+        assertEquals(expected.modelStats().edgeCount(), poet.modelStats().edgeCount());
+        poet.prune(2);
+        assertEquals("explore new", poet.poem("explore new"));
+    }
+
+    @Test
+    public void testTiedBridgesPickFirstAlphabetically() throws IOException {
+        File corpus = folder.newFile();
+        Files.write(corpus.toPath(), "a y b a x b".getBytes(StandardCharsets.UTF_8));
+        assertEquals("a x b", new GraphPoet(corpus).poem("a b"));
+        assertEquals("a x b", new GraphPoet(corpus, 3).poem("a b"));
+    }
+
+    private static String streamed(GraphPoet poet, String input) throws IOException {
+        StringWriter output = new StringWriter();
+        poet.poem(new StringReader(input), output);
+        return output.toString();
+    }
+
+    @Test
+    public void testStreamingMatchesPoem() throws IOException {
+        GraphPoet bigram = new GraphPoet(new File("test/poet/corpus.txt"));
+        GraphPoet trigram = new GraphPoet(contextCorpus(), 3);
+        String[] inputs = {
+            "Seek to explore new and exciting synergies!",
+            "  Seek to\texplore\n\nnew  and exciting synergies!\r\n",
+            "C a B and w a b then a b",
+            "explore\u00A0new explore new",
+            "", " ", "\n\t ", "Hello", " Hello", "Hello ",
+        };
+        for (String input : inputs) {
+            assertEquals(bigram.poem(input), streamed(bigram, input));
+            assertEquals(trigram.poem(input), streamed(trigram, input));
+        }
+    }
+
+    @Test
+    public void testWhitespaceOnlyInput() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"));
+        assertEquals("", poet.poem(" \n "));
+    }
+
+    @Test
+    public void testStreamingLongInput() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"));
+        String unit = "explore new and exciting synergies\n";
+        String poemUnit = "explore strange new life and exciting synergies ";
+        int repeats = 200_000;
+        // the input is generated and the output counted, so neither is held in memory
+        Reader input = new Reader() {
+            private long remaining = (long) unit.length() * repeats;
+            @Override public int read(char[] cbuf, int off, int len) {
+                if (remaining == 0) return -1;
+                int n = (int) Math.min(len, remaining);
+                for (int i = 0; i < n; i++) {
+                    cbuf[off + i] = unit.charAt((int) ((unit.length() * (long) repeats - remaining + i) % unit.length()));
+                }
+                remaining -= n;
+                return n;
+            }
+            @Override public void close() { }
+        };
+        long[] written = { 0 };
+        StringBuilder tail = new StringBuilder();
+        Writer output = new Writer() {
+            @Override public void write(char[] cbuf, int off, int len) {
+                written[0] += len;
+                tail.append(cbuf, off, len);
+                if (tail.length() > 1000) tail.delete(0, tail.length() - 100);
+            }
+            @Override public void flush() { }
+            @Override public void close() { }
+        };
+        poet.poem(input, output);
+        // synergies -> explore has no bridge, and the last word has no trailing space
+        assertEquals((long) poemUnit.length() * repeats - 1, written[0]);
+        assertEquals("life and exciting synergies", tail.substring(tail.length() - 27));
+    }
+
+    @Test
+    public void testSaveLoadRoundTrip() throws IOException {
+        for (int order : new int[] { 2, 3 }) {
+            GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"), order);
+            poet.train(contextCorpus());
+            File model = folder.newFile();
+            poet.save(model);
+            GraphPoet loaded = GraphPoet.load(model);
+            assertEquals(order, loaded.order());
+            for (String input : new String[] { "Seek to explore new and exciting synergies!", "c a b", "a b", "" }) {
+                assertEquals(poet.poem(input), loaded.poem(input));
+            }
+            assertEquals(poet.modelStats().edgeCount(), loaded.modelStats().edgeCount());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadRejectsCorpus() throws IOException {
+        GraphPoet.load(new File("test/poet/corpus.txt"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadRejectsCorruptModel() throws IOException {
+        File model = folder.newFile();
+        new GraphPoet(new File("test/poet/corpus.txt")).save(model);
+        byte[] bytes = Files.readAllBytes(model.toPath());
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(model.toPath(), bytes);
+        GraphPoet.load(model);
+    }
+
+    private File repeatedCorpus() throws IOException {
+        File corpus = folder.newFile();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            text.append("seek to explore strange new worlds\n");
+        }
+        text.append("to seek out new life and new civilizations\n");
+        Files.write(corpus.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        return corpus;
+    }
+
+    @Test
+    public void testApproximateThresholdOneMatchesExact() throws IOException {
+        File corpus = repeatedCorpus();
+        GraphPoet exact = new GraphPoet(corpus);
+        GraphPoet approximate = new GraphPoet(new GraphBuilder());
+        // at threshold 1 every pair is let in on its first occurrence with its
+        // exact count, however crowded the sketch
+        SketchReport report = approximate.trainApproximate(corpus, 1, 256);
+        assertEquals(exact.modelStats().edgeCount(), approximate.modelStats().edgeCount());
+        assertEquals(exact.modelStats().edgeCount(), report.admittedEdges());
+        assertEquals(50 * 6 + 8 - 1, report.pairs());
+        for (String input : new String[] { "Seek to explore new worlds", "seek new life", "out and civilizations" }) {
+            assertEquals(exact.poem(input), approximate.poem(input));
+        }
+    }
+
+    @Test
+    public void testApproximateDropsRarePairs() throws IOException {
+        GraphPoet poet = new GraphPoet(new GraphBuilder().expectedEdges(16));
+        SketchReport report = poet.trainApproximate(repeatedCorpus(), 5, 1 << 20);
+        // the six pairs of the repeated line, and worlds -> seek between repeats
+        assertEquals(6, report.admittedEdges());
+        assertEquals(6, poet.modelStats().edgeCount());
+        assertEquals("Seek to explore strange new worlds", poet.poem("Seek to explore new worlds"));
+        assertEquals("rare pair out -> new is not a bridge", "seek new", poet.poem("seek new"));
+        // the six counted until they reach 5, then the eight rare pairs
+        assertEquals(6 * 5 + 8, report.sketchedPairs());
+        assertTrue(report.errorBound() >= 0);
+        assertEquals(CountMinSketch.DEFAULT_DEPTH, report.depth());
+    }
+
+    @Test
+    public void testApproximateKeepsCollidingWordsApart() throws IOException {
+        assertEquals("0z".hashCode(), "1[".hashCode());
+        File corpus = folder.newFile();
+        Files.write(corpus.toPath(), "x 0z\nx 1[\n".getBytes(StandardCharsets.UTF_8));
+        GraphPoet poet = new GraphPoet(new GraphBuilder());
+        SketchReport report = poet.trainApproximate(corpus, 2, 1 << 20);
+        assertEquals("x -> 0z and x -> 1[ each occur once", 0, report.admittedEdges());
+        assertTrue(GraphPoet.pairKey("ab", "c") != GraphPoet.pairKey("a", "bc"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testApproximateRequiresOrderTwo() throws IOException {
+        new GraphPoet(folder.newFile(), 3).trainApproximate(new File("test/poet/corpus.txt"), 2, 1 << 20);
+    }
+}
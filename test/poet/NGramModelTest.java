@@ -0,0 +1,176 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import graph.ConcreteVerticesGraph;
+import graph.Graph;
+import graph.GraphStats;
+
+public class NGramModelTest {
+
+    // Testing strategy
+    //   NGramModel: order 2, 3, illegal
+    //   train(): empty text, repeated sequences, words spanning table resizes
+    //   count(): sequence length 1, order, out of range; unknown word, null
+    //     word, unseen sequence of known words
+    //   prune(): counts below, at threshold
+    //   estimatedHeapBytes(): per context, compared to a bigram graph edge
+    //   writeTo()/readFrom(): round trip after training and pruning
+    //   LongIntHashMap: get() absent and present, putIfAbsent() existing key,
+    //     growth past the initial capacity; writeTo()/readFrom() round trip
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static String[] words(String text) {
+        return text.split(" ");
+    }
+
+    @Test
+    public void testCounts() {
+        NGramModel model = new NGramModel(3);
+        model.train(words("a b c a b d"));
+        String[] abc = words("a b c");
+        assertEquals(2, model.count(abc, 0, 1));
+        assertEquals(2, model.count(abc, 0, 2));
+        assertEquals(1, model.count(abc, 0, 3));
+        assertEquals(1, model.count(abc, 1, 3));
+        assertEquals(1, model.count(words("a b d"), 0, 3));
+        assertEquals(0, model.count(words("b a"), 0, 2));
+        assertEquals(0, model.count(words("a z"), 0, 2));
+        assertEquals(0, model.count(new String[] { null, "a", "b" }, 0, 3));
+        // four words; a b, b c, c a, b d; a b c, b c a, c a b, a b d
+        assertEquals(12, model.contextCount());
+    }
+
+    @Test
+    public void testEmptyText() {
+        NGramModel model = new NGramModel(2);
+        model.train(new String[0]);
+        assertEquals(0, model.contextCount());
+        assertEquals(0, model.count(words("a"), 0, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCountLongerThanOrder() {
+        new NGramModel(2).count(words("a b c"), 0, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrderTooSmall() {
+        new NGramModel(1);
+    }
+
+    @Test
+    public void testPrune() {
+        NGramModel model = new NGramModel(2);
+        model.train(words("a b a b a c"));
+        model.prune(2);
+        assertEquals(2, model.count(words("a b"), 0, 2));
+        assertEquals(0, model.count(words("a c"), 0, 2));
+        model.train(words("a c"));
+        assertEquals("pruned sequences count again from zero", 1, model.count(words("a c"), 0, 2));
+    }
+
+    @Test
+    public void testManyContexts() {
+        NGramModel model = new NGramModel(3);
+        Random random = new Random(5);
+        String[] text = new String[20000];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = "w" + random.nextInt(500);
+        }
+        model.train(text);
+        for (int i = 0; i + 3 <= text.length; i += 997) {
+            assertTrue(model.count(text, i, i + 3) >= 1);
+            assertTrue(model.count(text, i, i + 2) >= model.count(text, i, i + 3));
+        }
+    }
+
+    @Test
+    public void testContextNoLargerThanBigramEdge() {
+        Random random = new Random(9);
+        String[] text = new String[20000];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = "w" + random.nextInt(2000);
+        }
+        NGramModel model = new NGramModel(3);
+        model.train(text);
+        Graph<String> graph = new ConcreteVerticesGraph();
+        for (int i = 0; i + 1 < text.length; i++) {
+            graph.set(text[i], text[i + 1], graph.targets(text[i]).getOrDefault(text[i + 1], 0) + 1);
+        }
+        GraphStats stats = GraphStats.of(graph);
+        double perContext = (double) model.estimatedHeapBytes() / model.contextCount();
+        double perEdge = (double) stats.estimatedHeapBytes() / stats.edgeCount();
+        assertTrue(perContext + " bytes per context vs " + perEdge + " per edge", perContext <= perEdge);
+    }
+
+    @Test
+    public void testLongIntHashMap() {
+        LongIntHashMap map = new LongIntHashMap(0);
+        assertEquals(-1, map.get(42, -1));
+        assertEquals(7, map.putIfAbsent(42, 7));
+        assertEquals("existing value kept", 7, map.putIfAbsent(42, 8));
+        for (long key = 1; key <= 10000; key++) {
+            map.putIfAbsent(key << 32 | key, (int) key);
+        }
+        assertEquals(10001, map.size());
+        for (long key = 1; key <= 10000; key++) {
+            assertEquals((int) key, map.get(key << 32 | key, -1));
+        }
+        assertEquals(7, map.get(42, -1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLongIntHashMapEmptyKey() {
+        new LongIntHashMap(0).putIfAbsent(LongIntHashMap.EMPTY, 1);
+    }
+
+    @Test
+    public void testWriteReadRoundTrip() throws IOException {
+        NGramModel model = new NGramModel(3);
+        model.train(words("a b c a b d c a b"));
+        model.prune(2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        model.writeTo(new DataOutputStream(bytes));
+        NGramModel read = NGramModel.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(3, read.order());
+        assertEquals(model.contextCount(), read.contextCount());
+        String[] text = words("a b c a b d c a b z");
+        for (int from = 0; from < text.length; from++) {
+            for (int to = from + 1; to <= Math.min(text.length, from + 3); to++) {
+                assertEquals(model.count(text, from, to), read.count(text, from, to));
+            }
+        }
+        read.train(words("z a"));
+        assertEquals(1, read.count(words("z a"), 0, 2));
+    }
+
+    @Test
+    public void testLongIntHashMapWriteRead() throws IOException {
+        LongIntHashMap map = new LongIntHashMap(0);
+        for (long key = 1; key <= 100; key++) {
+            map.putIfAbsent(key << 32 | key, (int) key * 3);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        map.writeTo(new DataOutputStream(bytes));
+        LongIntHashMap read = LongIntHashMap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(100, read.size());
+        for (long key = 1; key <= 100; key++) {
+            assertEquals((int) key * 3, read.get(key << 32 | key, -1));
+        }
+        assertEquals(-1, read.get(5, -1));
+    }
+}
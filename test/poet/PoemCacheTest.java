@@ -0,0 +1,85 @@
+package poet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class PoemCacheTest {
+
+    // Testing strategy
+    //   policy: LRU, TINY_LFU
+    //   get(): hit, miss
+    //   put(): below capacity, at capacity with admission, at capacity with rejection
+    //   clear(): entries dropped, statistics kept, generation advanced
+    //   put() with a generation: current, stale
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() {
+        PoemCache cache = new PoemCache(2, PoemCache.Policy.LRU);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        assertEquals("A", cache.get("a"));
+        cache.put("c", "C");
+
+        assertNull("b was least recently used", cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        PoemCache.Stats stats = cache.stats();
+        assertEquals(3, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.size());
+    }
+
+    @Test
+    public void testTinyLfuRejectsRareKeys() {
+        PoemCache cache = new PoemCache(2, PoemCache.Policy.TINY_LFU);
+        for (String key : new String[] { "hot", "warm" }) {
+            for (int i = 0; i < 5; i++) {
+                cache.get(key);
+            }
+            cache.put(key, key.toUpperCase());
+        }
+        assertNull(cache.get("rare"));
+        cache.put("rare", "RARE");
+
+        assertNull("one-off key should not displace popular ones", cache.get("rare"));
+        assertEquals("HOT", cache.get("hot"));
+        assertEquals("WARM", cache.get("warm"));
+        assertEquals(1, cache.stats().rejections());
+        assertEquals(0, cache.stats().evictions());
+    }
+
+    @Test
+    public void testClearKeepsStatistics() {
+        PoemCache cache = new PoemCache(4, PoemCache.Policy.LRU);
+        cache.put("a", "A");
+        cache.get("a");
+        cache.clear();
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.stats().size());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(0.5, cache.stats().hitRate(), 1e-9);
+    }
+
+    @Test
+    public void testStaleGenerationNotCached() {
+        PoemCache cache = new PoemCache(4, PoemCache.Policy.LRU);
+        long before = cache.generation();
+        cache.put("a", "A", before);
+        assertEquals("A", cache.get("a"));
+        cache.clear();
+        assertEquals(before + 1, cache.generation());
+        cache.put("b", "B", before);
+        assertNull("computed before clear()", cache.get("b"));
+        cache.put("b", "B", cache.generation());
+        assertEquals("B", cache.get("b"));
+    }
+}
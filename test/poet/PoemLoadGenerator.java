@@ -0,0 +1,108 @@
+package poet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local load generator for PoemServer. Starts a server in this process, drives
+ * it from concurrent keep-alive clients, and reports throughput and p50/p99
+ * latency.
+ *
+ * <p>Run with: java -cp bin poet.PoemLoadGenerator [corpus] [clients]
+ *   [requestsPerClient] [maxBatchDelayMillis]
+ */
+public class PoemLoadGenerator {
+
+    private static final String[] INPUTS = {
+        "Seek to explore new and exciting synergies!",
+        "To seek new worlds",
+        "Test the system.",
+        "explore new civilizations and life",
+    };
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        File corpus = new File(args.length > 0 ? args[0] : "src/poet/mugar-omni-theater.txt");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int requestsPerClient = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        long delay = args.length > 3 ? Long.parseLong(args[3]) : PoemServer.DEFAULT_MAX_BATCH_DELAY_MILLIS;
+
+        PoemServer server = new PoemServer(new GraphPoet(corpus), new InetSocketAddress("localhost", 0),
+                PoemServer.DEFAULT_MAX_BATCH_SIZE, delay);
+        server.start();
+        URL url = new URL("http://localhost:" + server.getPort() + "/poem");
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            final int client = c;
+            results.add(pool.submit(() -> {
+                long[] latencies = new long[requestsPerClient];
+                for (int r = 0; r < requestsPerClient; r++) {
+                    String input = INPUTS[(client + r) % INPUTS.length];
+                    long sent = System.nanoTime();
+                    post(url, input);
+                    latencies[r] = System.nanoTime() - sent;
+                }
+                return latencies;
+            }));
+        }
+        long[] all = new long[clients * requestsPerClient];
+        int n = 0;
+        for (Future<long[]> result : results) {
+            for (long latency : result.get()) {
+                all[n++] = latency;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        server.stop();
+
+        Arrays.sort(all);
+        System.out.printf("clients=%d requests=%d maxBatchDelay=%dms%n", clients, all.length, delay);
+        System.out.printf("throughput %.0f req/s  p50 %.2f ms  p99 %.2f ms  max %.2f ms%n",
+                all.length / (elapsed / 1e9), percentile(all, 50) / 1e6, percentile(all, 99) / 1e6,
+                all[all.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, int p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static String post(URL url, String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        // read the whole response so the connection returns to the keep-alive pool
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        try (InputStream in = conn.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                response.write(buffer, 0, read);
+            }
+        }
+        return new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,149 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PoemPipelineTest {
+
+    // Testing strategy
+    //   PoemPipeline: one worker, several workers; batch of one line, batch
+    //     larger than the input; more chunks than may be in flight; several
+    //     inputs, the first without a final line end; empty input; illegal
+    //     workers or batch size
+    //   Report: line and char counts
+    //   Main.run(): stdin, input files, several corpora, --save then --model,
+    //     bad arguments
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String CORPUS = "test/poet/corpus.txt";
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static List<String> inputs(int n) {
+        String[] lines = { "Seek to explore new and exciting synergies!", "", "explore new worlds", "a b" };
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            inputs.add(lines[i % lines.length] + (i % 7 == 0 ? "" : " " + i));
+        }
+        return inputs;
+    }
+
+    private static String expected(GraphPoet poet, List<String> inputs) {
+        StringBuilder poems = new StringBuilder();
+        for (String input : inputs) {
+            poems.append(poet.poem(input)).append('\n');
+        }
+        return poems.toString();
+    }
+
+    @Test
+    public void testOutputInInputOrder() throws IOException {
+        GraphPoet poet = new GraphPoet(new File(CORPUS));
+        List<String> inputs = inputs(1000);
+        for (int workers : new int[] { 1, 4 }) {
+            for (int batch : new int[] { 1, 7, 5000 }) {
+                StringWriter output = new StringWriter();
+                PoemPipeline pipeline = new PoemPipeline(poet, workers, batch, output);
+                pipeline.transform(new StringReader(String.join("\n", inputs) + "\n"));
+                PoemPipeline.Report report = pipeline.finish();
+                String expected = expected(poet, inputs);
+                assertEquals(expected, output.toString());
+                assertEquals(1000, report.lines());
+                assertEquals(expected.length(), report.outputChars());
+                assertEquals(String.join("\n", inputs).length() + 1, report.inputChars());
+                assertTrue(report.peakHeapBytes() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSeveralInputs() throws IOException {
+        GraphPoet poet = new GraphPoet(new File(CORPUS));
+        StringWriter output = new StringWriter();
+        PoemPipeline pipeline = new PoemPipeline(poet, 2, 4, output);
+        pipeline.transform(new StringReader("explore new worlds\nSeek to explore new and exciting synergies!"));
+        pipeline.transform(new StringReader(""));
+        pipeline.transform(new StringReader("a b\r\nexplore new worlds\n"));
+        assertEquals(4, pipeline.finish().lines());
+        assertEquals("explore strange new worlds\nSeek to explore strange new life and exciting synergies!\n"
+                + "a b\nexplore strange new worlds\n", output.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNoWorkers() throws IOException {
+        new PoemPipeline(new GraphPoet(new File(CORPUS)), 0, 1, new StringWriter());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyBatch() throws IOException {
+        new PoemPipeline(new GraphPoet(new File(CORPUS)), 1, 0, new StringWriter());
+    }
+
+    private static String run(String stdin, String... args) throws IOException {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        int status = Main.run(args, new ByteArrayInputStream(stdin.getBytes(StandardCharsets.UTF_8)),
+                stdout, new PrintStream(stderr, true, "UTF-8"));
+        assertEquals(new String(stderr.toByteArray(), StandardCharsets.UTF_8), 0, status);
+        return new String(stdout.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testMainStdin() throws IOException {
+        assertEquals("Seek to explore strange new life and exciting synergies!\n\n",
+                run("Seek to explore new and exciting synergies!\n\n", "-q", "-c", CORPUS, "-t", "2"));
+    }
+
+    @Test
+    public void testMainFilesAndSavedModel() throws IOException {
+        File extra = folder.newFile();
+        Files.write(extra.toPath(), "worlds of wonder\n".getBytes(StandardCharsets.UTF_8));
+        File input = folder.newFile();
+        Files.write(input.toPath(), "explore new worlds\nworlds wonder\n".getBytes(StandardCharsets.UTF_8));
+        File model = new File(folder.getRoot(), "model.bin");
+
+        String trained = run("", "-q", "--corpus", CORPUS, "--corpus", extra.getPath(), "--save", model.getPath(),
+                input.getPath());
+        assertEquals("explore strange new worlds\nworlds of wonder\n", trained);
+        assertEquals("stdin between files", trained + "a b\n" + trained,
+                run("a b\n", "-q", "-m", model.getPath(), input.getPath(), "-", input.getPath()));
+    }
+
+    @Test
+    public void testMainRejectsBadArguments() throws IOException {
+        String[][] bad = {
+            { "input.txt" },
+            { "-c", CORPUS, "-m", "model.bin" },
+            { "-c", CORPUS, "-t", "0" },
+            { "-c", CORPUS, "-b" },
+            { "-c", CORPUS, "--frobnicate" },
+        };
+        for (String[] args : bad) {
+            ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+            int status = Main.run(args, new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(),
+                    new PrintStream(stderr, true, "UTF-8"));
+            assertEquals(String.join(" ", args), 2, status);
+            assertTrue(new String(stderr.toByteArray(), StandardCharsets.UTF_8).contains("usage"));
+        }
+    }
+}
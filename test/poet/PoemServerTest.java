@@ -0,0 +1,166 @@
+package poet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PoemServerTest {
+
+    // Testing strategy
+    //   PoemServer: one input per request, several inputs per request,
+    //     non-POST method
+    //   PoemBatcher: more concurrent submissions than one batch holds;
+    //     parallelism 1, parallelism > 1 with batches transformed at once;
+    //     submissions racing close()
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testServesPoemsLineByLine() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"));
+        PoemServer server = new PoemServer(poet, new InetSocketAddress("localhost", 0), 8, 1);
+        server.start();
+        try {
+            URL url = new URL("http://localhost:" + server.getPort() + "/poem");
+            assertEquals("Seek to explore strange new life and exciting synergies!\n",
+                    request(url, "POST", "Seek to explore new and exciting synergies!"));
+            assertEquals("Hello\nThe quick brown fox jumps\n",
+                    request(url, "POST", "Hello\nThe quick brown fox jumps\n"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsGet() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"));
+        PoemServer server = new PoemServer(poet, new InetSocketAddress("localhost", 0), 8, 1);
+        server.start();
+        try {
+            request(new URL("http://localhost:" + server.getPort() + "/poem"), "GET", null);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testBatcherCompletesEveryRequest() throws Exception {
+        GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"));
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        try (PoemBatcher batcher = new PoemBatcher(poet, 3, 5)) {
+            for (int i = 0; i < 10; i++) {
+                results.add(batcher.submit(i % 2 == 0 ? "explore new" : "Hello"));
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i % 2 == 0 ? "explore strange new" : "Hello", results.get(i).get());
+            }
+        }
+    }
+
+    @Test
+    public void testBatcherTransformsBatchesInParallel() throws Exception {
+        GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch together = new CountDownLatch(2);
+        GraphPoet slow = new GraphPoet(new File("test/poet/corpus.txt")) {
+            @Override
+            public List<String> poems(List<String> inputs) {
+                threads.add(Thread.currentThread().getName());
+                together.countDown();
+                try {
+                    // only returns early if a second batch runs alongside this one
+                    together.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return poet.poems(inputs);
+            }
+        };
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        try (PoemBatcher batcher = new PoemBatcher(slow, 1, 0, 2)) {
+            results.add(batcher.submit("explore new"));
+            results.add(batcher.submit("Hello"));
+            assertEquals("explore strange new", results.get(0).get());
+            assertEquals("Hello", results.get(1).get());
+        }
+        assertEquals(0, together.getCount());
+        assertEquals(2, threads.size());
+        assertTrue("batches overlapped", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testSubmitRacingCloseIsCompleted() throws Exception {
+        GraphPoet poet = new GraphPoet(new File("test/poet/corpus.txt"));
+        for (int round = 0; round < 50; round++) {
+            List<CompletableFuture<String>> results = Collections.synchronizedList(new ArrayList<>());
+            PoemBatcher batcher = new PoemBatcher(poet, 4, 0, 2);
+            CountDownLatch started = new CountDownLatch(2);
+            List<Thread> submitters = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                Thread submitter = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 200; i++) {
+                        results.add(batcher.submit("explore new"));
+                    }
+                });
+                submitter.start();
+                submitters.add(submitter);
+            }
+            started.await();
+            batcher.close();
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            for (CompletableFuture<String> result : results) {
+                try {
+                    assertEquals("explore strange new", result.get(5, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IllegalStateException);
+                }
+            }
+        }
+    }
+
+    private static String request(URL url, String method, String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(method);
+        if (body != null) {
+            conn.setDoOutput(true);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        try (InputStream in = conn.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                response.write(buffer, 0, read);
+            }
+        }
+        return new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+}